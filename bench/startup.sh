@@ -0,0 +1,73 @@
+#!/usr/bin/env bash
+# Time to first output of a hello world and a mid-size script, in each launch mode:
+#   jvm     plain java -jar
+#   appcds  java -jar with the class data archive from mvn -Pappcds package
+#   native  the GraalVM binary from mvn -Pnative package
+# Modes whose artifact hasn't been built are skipped. Usage: bench/startup.sh [runs]
+# Scripts buffer their output until they finish, so for them first output is also the end.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+runs=${1:-10}
+jar=$(ls target/java-interpreter-jlox-*.jar 2>/dev/null | head -n 1 || true)
+archive=target/jlox.jsa
+binary=target/jlox
+java=${JAVA_HOME:+$JAVA_HOME/bin/}java
+
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+
+echo 'print "Hello, World!";' > "$work/hello.lox"
+{
+    echo 'var total = 0;'
+    for i in $(seq 1 1000); do
+        echo "var v$i = ($i + total) * 2 - $i / 4;"
+        echo "if (v$i > total and !(v$i == 0)) total = total + v$i; else total = total - 1;"
+    done
+    echo 'for (var i = 0; i < 1000; i = i + 1) { total = total + i; }'
+    echo 'print total;'
+} > "$work/mid.lox"
+
+now() {
+    date +%s%N
+}
+
+# Milliseconds until the command's first line of output, median of $runs runs
+measure() {
+    local times=()
+    for _ in $(seq 1 "$runs"); do
+        local start
+        start=$(now)
+        "$@" | head -n 1 > /dev/null
+        times+=($(( ($(now) - start) / 1000000 )))
+    done
+    printf '%s\n' "${times[@]}" | sort -n | awk '{ t[NR] = $1 } END { print t[int((NR + 1) / 2)] }'
+}
+
+report() {
+    local mode=$1
+    shift
+    printf '%-8s hello %5s ms   mid %5s ms\n' "$mode" \
+        "$(measure "$@" "$work/hello.lox")" "$(measure "$@" "$work/mid.lox")"
+}
+
+if [[ -n "$jar" ]]; then
+    report jvm "$java" -jar "$jar"
+    # -Xshare:on fails instead of quietly running without a stale archive
+    appcds=("$java" -Xshare:on -XX:SharedArchiveFile="$archive" -jar "$jar")
+    if [[ ! -f "$archive" ]]; then
+        echo "appcds   skipped, run mvn -Pappcds package"
+    elif ! "${appcds[@]}" "$work/hello.lox" > /dev/null 2>&1; then
+        echo "appcds   skipped, $archive doesn't match $jar, rebuild it with mvn -Pappcds package"
+    else
+        report appcds "${appcds[@]}"
+    fi
+else
+    echo "jvm      skipped, run mvn package"
+fi
+
+if [[ -x "$binary" ]]; then
+    report native "$binary"
+else
+    echo "native   skipped, run mvn -Pnative package with GraalVM"
+fi
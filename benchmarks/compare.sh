@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+# Runs the current benchmarks against two commits and prints the scores side by side.
+#   benchmarks/compare.sh <base> <head> [JMH options]
+# e.g. benchmarks/compare.sh main HEAD ParserBenchmark -p statements=10000
+# Each commit is checked out in a temporary worktree with this benchmarks directory
+# copied over it, so both are measured by the same benchmark code. Both commits need
+# the interpreter APIs the benchmarks call.
+set -euo pipefail
+
+if [[ $# -lt 2 ]]; then
+    echo "Usage: $0 <base> <head> [JMH options]" >&2
+    exit 64
+fi
+base=$1
+head=$2
+shift 2
+
+root=$(git -C "$(dirname "$0")" rev-parse --show-toplevel)
+work=$(mktemp -d)
+cleanup() {
+    for tree in "$work"/tree-*; do
+        [[ -d "$tree" ]] && git -C "$root" worktree remove --force "$tree"
+    done
+    rm -rf "$work"
+}
+trap cleanup EXIT
+
+java=${JAVA_HOME:+$JAVA_HOME/bin/}java
+
+run() {
+    local name=$1 commit=$2
+    local tree="$work/tree-$name"
+    git -C "$root" worktree add --quiet --detach "$tree" "$commit"
+    rm -rf "$tree/benchmarks"
+    cp -R "$root/benchmarks" "$tree/benchmarks"
+    rm -rf "$tree/benchmarks/target"
+    mvn -B -q -f "$tree/benchmarks/pom.xml" package
+    echo "== $name: $(git -C "$root" rev-parse --short "$commit")" >&2
+    "$java" -jar "$tree/benchmarks/target/benchmarks.jar" -rf csv -rff "$work/$name.csv" "$@" >&2
+}
+
+run base "$base" "$@"
+run head "$head" "$@"
+
+# Rows are matched on benchmark name, mode and parameters. For thrpt higher is better,
+# for avgt lower.
+awk -F',' '
+    BEGIN { printf "%-70s %14s %14s %9s %s\n", "benchmark", "base", "head", "head/base", "unit" }
+    function key(    k, i){
+        k = $1 " " $2
+        for(i = 8; i <= NF; i++) k = k " " $i
+        return k
+    }
+    FNR == 1 { next }
+    { gsub(/"/, "") }
+    FILENAME == ARGV[1] { score[key()] = $5; next }
+    {
+        k = key()
+        if(!(k in score)) next
+        printf "%-70s %14.3f %14.3f %8.2fx %s\n", k, score[k], $5, $5 / score[k], $7
+    }
+' "$work/base.csv" "$work/head.csv"
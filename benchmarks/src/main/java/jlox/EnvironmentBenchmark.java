@@ -0,0 +1,52 @@
+package jlox;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//Variable reads through the environment chain, a local 'depth' scopes out and a global
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EnvironmentBenchmark {
+    private static final int SLOT = 2;
+
+    @Param({"0", "1", "4", "16"})
+    public int depth;
+
+    private Environment globals;
+    private Environment innermost;
+    private Token name;
+
+    @Setup
+    public void setUp(){
+        name = new Token(TokenType.IDENTIFIER, "x", null, 1, 0);
+        globals = new Environment();
+        globals.define(SLOT, "global", 0);
+
+        Environment environment = globals;
+        for(int i = 0; i <= depth; i++){
+            environment = new Environment(environment, 4);
+            environment.assignAt(SLOT, "local" + i, i);
+        }
+        innermost = environment;
+    }
+
+    @Benchmark
+    public Object local(){
+        return innermost.ancestor(depth).getAt(SLOT);
+    }
+
+    @Benchmark
+    public double localNumber(){
+        return innermost.ancestor(depth).numberAt(SLOT);
+    }
+
+    @Benchmark
+    public Object global(){
+        return globals.get(name, SLOT);
+    }
+}
@@ -0,0 +1,48 @@
+package jlox;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Whole programs on the tree-walking Interpreter. Parsing and resolving happen in setup,
+//each invocation is one run of the program with its output thrown away.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InterpreterBenchmark {
+    @Param({"numericLoop", "stringBuilding", "nestedBlocks", "ifChain"})
+    public String program;
+
+    @Param({"1000", "100000"})
+    public int iterations;
+
+    private Interpreter interpreter;
+    private List<Stmt> statements;
+
+    @Setup
+    public void setUp(){
+        String source = switch (program) {
+            case "numericLoop" -> Programs.numericLoop(iterations);
+            case "stringBuilding" -> Programs.stringBuilding(iterations);
+            case "nestedBlocks" -> Programs.nestedBlocks(iterations);
+            case "ifChain" -> Programs.ifChain(iterations);
+            default -> throw new IllegalArgumentException("Unknown program " + program);
+        };
+
+        OutputSink out = new OutputSink(Channels.newChannel(OutputStream.nullOutputStream()), OutputSink.DEFAULT_CAPACITY, false);
+        interpreter = new Interpreter(out);
+        statements = new Optimizer().optimize(new Parser(new Scanner(source).scan()).parse());
+        new Resolver(interpreter).resolve(statements);
+    }
+
+    @Benchmark
+    public void run(){
+        interpreter.interpret(statements);
+    }
+}
@@ -0,0 +1,45 @@
+package jlox;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+//Parser.parse over tokens scanned once in setup. The statements counter is reported as
+//top level statements per second.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int statements;
+
+    private TokenBuffer tokens;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long statements;
+    }
+
+    @Setup
+    public void setUp(){
+        tokens = new Scanner(Programs.mixed(statements)).scan();
+    }
+
+    @Benchmark
+    public Object parse(Counters counters){
+        counters.statements += statements;
+        return new Parser(tokens).parse();
+    }
+
+    //Chunks small enough that every size is split
+    @Benchmark
+    public Object parseParallel(Counters counters){
+        counters.statements += statements;
+        return new ParallelParser(tokens, ErrorReporter.LOX, ForkJoinPool.commonPool(), 1024).parse();
+    }
+}
@@ -0,0 +1,61 @@
+package jlox;
+
+//Lox sources the benchmarks run, generated so input size is a parameter
+final class Programs {
+    private Programs(){
+    }
+
+    //Declarations, loops and branches through every precedence level, statements top level ones
+    static String mixed(int statements){
+        StringBuilder source = new StringBuilder("var a = 1;\nvar b = 2;\nvar c = \"s\";\n");
+        for(int i = 3; i < statements; i++){
+            switch (i % 4){
+                case 0 -> source.append("var v").append(i).append(" = (a + ").append(i)
+                        .append(") * -b / 2 - a * (b - 1.5); // comment\n");
+                case 1 -> source.append("a = b = !(a == b) and c != \"x\" or a >= ").append(i).append(";\n");
+                case 2 -> source.append("if (a < b and b <= ").append(i)
+                        .append(") { print c + a; } else a = a - 1;\n");
+                default -> source.append("while (a > ").append(i).append(") { a = a - 1 * 2 + (b / 3); }\n");
+            }
+        }
+        return source.toString();
+    }
+
+    static String numericLoop(int iterations){
+        return "var sum = 0;\n" +
+                "for (var i = 0; i < " + iterations + "; i = i + 1) { sum = sum + i * 2 - i / 3; }\n" +
+                "print sum;\n";
+    }
+
+    static String stringBuilding(int iterations){
+        return "var s = \"\";\n" +
+                "for (var i = 0; i < " + iterations + "; i = i + 1) s = s + \"x\" + i;\n" +
+                "print \"done\";\n";
+    }
+
+    //Eight blocks deep, each reading the variable of the block around it
+    static String nestedBlocks(int iterations){
+        StringBuilder source = new StringBuilder("var total = 0;\n");
+        source.append("for (var i = 0; i < ").append(iterations).append("; i = i + 1) {\n");
+        source.append("var a0 = i;\n");
+        for(int depth = 1; depth < 8; depth++){
+            source.append("{ var a").append(depth).append(" = a").append(depth - 1).append(" + 1;\n");
+        }
+        source.append("total = total + a7;\n");
+        source.append("}".repeat(7)).append("\n}\nprint total;\n");
+        return source.toString();
+    }
+
+    //A 32 branch if/else if chain, each iteration takes a different branch
+    static String ifChain(int iterations){
+        StringBuilder source = new StringBuilder("var count = 0;\nvar k = 0;\n");
+        source.append("for (var i = 0; i < ").append(iterations).append("; i = i + 1) {\n");
+        source.append("k = k + 1;\nif (k > 32) k = 0;\n");
+        for(int branch = 0; branch < 32; branch++){
+            if(branch > 0) source.append("else ");
+            source.append("if (k < ").append(branch + 1).append(") count = count + ").append(branch).append(";\n");
+        }
+        source.append("else count = count - 1;\n}\nprint count;\n");
+        return source.toString();
+    }
+}
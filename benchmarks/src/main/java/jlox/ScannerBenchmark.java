@@ -0,0 +1,45 @@
+package jlox;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//Scanner.scanTokens over generated sources. The megabytes counter is reported as MB/s.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScannerBenchmark {
+    private static final double MEGABYTE = 1024 * 1024;
+
+    @Param({"100", "10000", "100000"})
+    public int statements;
+
+    private String source;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public double megabytes;
+    }
+
+    @Setup
+    public void setUp(){
+        source = Programs.mixed(statements);
+    }
+
+    @Benchmark
+    public Object scanTokens(Counters counters){
+        counters.megabytes += source.length() / MEGABYTE;
+        return new Scanner(source).scanTokens();
+    }
+
+    //Without materializing a Token per token
+    @Benchmark
+    public Object scan(Counters counters){
+        counters.megabytes += source.length() / MEGABYTE;
+        return new Scanner(source).scan();
+    }
+}
@@ -0,0 +1,175 @@
+package jlox;
+
+import static jlox.Environment.NUMBER;
+
+//Self-specializing implementations of Expr.Binary.
+//A node starts uninitialized, rewrites itself into the version matching the operand
+//types it sees first, and drops to the generic version for good once that guess fails.
+//Nodes are stateless so a rewrite is just a field store on the Expr.
+abstract class BinaryNode {
+    static final BinaryNode UNINITIALIZED = new Uninitialized();
+    static final BinaryNode GENERIC = new Generic();
+    private static final BinaryNode NUMBER_ADD = new NumberAdd();
+    private static final BinaryNode NUMBER_SUBTRACT = new NumberSubtract();
+    private static final BinaryNode NUMBER_MULTIPLY = new NumberMultiply();
+    private static final BinaryNode NUMBER_DIVIDE = new NumberDivide();
+    private static final BinaryNode NUMBER_GREATER = new NumberGreater();
+    private static final BinaryNode NUMBER_GREATER_EQUAL = new NumberGreaterEqual();
+    private static final BinaryNode NUMBER_LESS = new NumberLess();
+    private static final BinaryNode NUMBER_LESS_EQUAL = new NumberLessEqual();
+    private static final BinaryNode STRING_CONCAT = new StringConcat();
+
+    abstract Object execute(Interpreter interpreter, Expr.Binary expr);
+
+    private static BinaryNode specialize(TokenType operator, Object left, Object right){
+        if(left == NUMBER && right == NUMBER){
+            return switch (operator) {
+                case PLUS -> NUMBER_ADD;
+                case MINUS -> NUMBER_SUBTRACT;
+                case STAR -> NUMBER_MULTIPLY;
+                case SLASH -> NUMBER_DIVIDE;
+                case GREATER -> NUMBER_GREATER;
+                case GREATER_EQUAL -> NUMBER_GREATER_EQUAL;
+                case LESS -> NUMBER_LESS;
+                case LESS_EQUAL -> NUMBER_LESS_EQUAL;
+                default -> GENERIC;
+            };
+        }
+        if(operator == TokenType.PLUS && left instanceof CharSequence && right instanceof CharSequence){
+            return STRING_CONCAT;
+        }
+        return GENERIC;
+    }
+
+    //Operands are already evaluated here, so side effects never run twice
+    private static Object fallBack(Interpreter interpreter, Expr.Binary expr,
+                                   Object left, double leftNumber, Object right, double rightNumber){
+        expr.node = GENERIC;
+        return interpreter.binary(expr, left, leftNumber, right, rightNumber);
+    }
+
+    private static final class Uninitialized extends BinaryNode {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) {
+            Object left = interpreter.evaluate(expr.left);
+            double leftNumber = interpreter.number;
+            Object right = interpreter.evaluate(expr.right);
+            double rightNumber = interpreter.number;
+
+            expr.node = specialize(expr.operator.type, left, right);
+            return interpreter.binary(expr, left, leftNumber, right, rightNumber);
+        }
+    }
+
+    private static final class Generic extends BinaryNode {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) {
+            Object left = interpreter.evaluate(expr.left);
+            double leftNumber = interpreter.number;
+            Object right = interpreter.evaluate(expr.right);
+            double rightNumber = interpreter.number;
+            return interpreter.binary(expr, left, leftNumber, right, rightNumber);
+        }
+    }
+
+    //Shared body of the number specializations, which only differ in apply. Each one
+    //calls run from its own execute, where the JIT knows the exact class and can inline
+    //apply; a single execute here would make apply a megamorphic call.
+    private abstract static class NumberOp extends BinaryNode {
+        final Object run(Interpreter interpreter, Expr.Binary expr) {
+            Object left = interpreter.evaluate(expr.left);
+            double leftNumber = interpreter.number;
+            Object right = interpreter.evaluate(expr.right);
+            double rightNumber = interpreter.number;
+
+            if(left != NUMBER || right != NUMBER){
+                return fallBack(interpreter, expr, left, leftNumber, right, rightNumber);
+            }
+            Object result = apply(interpreter, leftNumber, rightNumber);
+            return result != null ? result : interpreter.binary(expr, left, leftNumber, right, rightNumber);
+        }
+
+        //null leaves these operands to the generic path without giving up the specialization
+        abstract Object apply(Interpreter interpreter, double left, double right);
+    }
+
+    private static final class NumberAdd extends NumberOp {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) { return run(interpreter, expr); }
+
+        @Override
+        Object apply(Interpreter interpreter, double left, double right) { return interpreter.number(left + right); }
+    }
+
+    private static final class NumberSubtract extends NumberOp {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) { return run(interpreter, expr); }
+
+        @Override
+        Object apply(Interpreter interpreter, double left, double right) { return interpreter.number(left - right); }
+    }
+
+    private static final class NumberMultiply extends NumberOp {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) { return run(interpreter, expr); }
+
+        @Override
+        Object apply(Interpreter interpreter, double left, double right) { return interpreter.number(left * right); }
+    }
+
+    private static final class NumberDivide extends NumberOp {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) { return run(interpreter, expr); }
+
+        //Division by zero stays on the generic path, it owns the error message
+        @Override
+        Object apply(Interpreter interpreter, double left, double right) { return right == 0 ? null : interpreter.number(left / right); }
+    }
+
+    private static final class NumberGreater extends NumberOp {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) { return run(interpreter, expr); }
+
+        @Override
+        Object apply(Interpreter interpreter, double left, double right) { return left > right; }
+    }
+
+    private static final class NumberGreaterEqual extends NumberOp {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) { return run(interpreter, expr); }
+
+        @Override
+        Object apply(Interpreter interpreter, double left, double right) { return left >= right; }
+    }
+
+    private static final class NumberLess extends NumberOp {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) { return run(interpreter, expr); }
+
+        @Override
+        Object apply(Interpreter interpreter, double left, double right) { return left < right; }
+    }
+
+    private static final class NumberLessEqual extends NumberOp {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) { return run(interpreter, expr); }
+
+        @Override
+        Object apply(Interpreter interpreter, double left, double right) { return left <= right; }
+    }
+
+    private static final class StringConcat extends BinaryNode {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Binary expr) {
+            Object left = interpreter.evaluate(expr.left);
+            double leftNumber = interpreter.number;
+            Object right = interpreter.evaluate(expr.right);
+            double rightNumber = interpreter.number;
+
+            if(!(left instanceof CharSequence) || !(right instanceof CharSequence)){
+                return fallBack(interpreter, expr, left, leftNumber, right, rightNumber);
+            }
+            return interpreter.charged(expr.operator, left, LoxString.concat((CharSequence) left, (CharSequence) right));
+        }
+    }
+}
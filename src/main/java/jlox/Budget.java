@@ -0,0 +1,71 @@
+package jlox;
+
+import java.util.concurrent.TimeUnit;
+
+//Limits on one run of a script, so untrusted code can't spin or allocate forever. The
+//interpreter counts a step at every loop back-edge and block entry, and charges the
+//approximate size of the scopes and strings it creates. Any limit running out ends the
+//run with a RuntimeError at the statement it happened in, like any other runtime error.
+//
+//Steps and bytes are compared with their limit every time, the clock is only read every
+//CLOCK_INTERVAL steps so a tight loop stays cheap. Counters restart with every run.
+final class Budget {
+    static final long UNLIMITED = Long.MAX_VALUE;
+    private static final int CLOCK_INTERVAL = 1024;
+    //Rough sizes on a 64 bit JVM: a scope with its two arrays, a slot in both of them, and
+    //a LoxString with its builder. Characters are counted at two bytes each.
+    static final long ENVIRONMENT_BYTES = 64;
+    static final long SLOT_BYTES = 12;
+    static final long STRING_BYTES = 48;
+
+    private final long maxSteps;
+    private final long maxNanos;
+    private final long maxBytes;
+    private long steps;
+    //Steps after which to look at the limits again
+    private long nextCheck;
+    private long deadline;
+    private long bytes;
+
+    Budget(long maxSteps, long maxMillis, long maxBytes){
+        if(maxSteps < 0 || maxMillis < 0 || maxBytes < 0) throw new IllegalArgumentException("Limits can't be negative");
+        this.maxSteps = maxSteps;
+        this.maxNanos = maxMillis == UNLIMITED ? UNLIMITED : TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        this.maxBytes = maxBytes;
+    }
+
+    //Called at the start of every run
+    void start(){
+        steps = 0;
+        bytes = 0;
+        if(maxNanos != UNLIMITED) deadline = System.nanoTime() + maxNanos;
+        nextCheck = Math.min(maxSteps, CLOCK_INTERVAL);
+    }
+
+    void step(Stmt where){
+        if(++steps > nextCheck) check(where);
+    }
+
+    void allocate(long size, Stmt where){
+        bytes += size;
+        if(bytes > maxBytes) throw exceeded(where, "Memory budget of " + maxBytes + " bytes exceeded.");
+    }
+
+    void allocate(long size, Token where){
+        bytes += size;
+        if(bytes > maxBytes) throw new RuntimeError(where, "Memory budget of " + maxBytes + " bytes exceeded.");
+    }
+
+    private void check(Stmt where){
+        if(steps > maxSteps) throw exceeded(where, "Step budget of " + maxSteps + " exceeded.");
+        if(maxNanos != UNLIMITED && System.nanoTime() - deadline > 0){
+            throw exceeded(where, "Time budget of " + TimeUnit.NANOSECONDS.toMillis(maxNanos) + " ms exceeded.");
+        }
+        nextCheck = Math.min(maxSteps, steps + CLOCK_INTERVAL);
+    }
+
+    //Statements have no token of their own, the error only needs one for its line
+    private static RuntimeError exceeded(Stmt where, String msg){
+        return new RuntimeError(new Token(TokenType.EOF, "", null, Lines.of(where)), msg);
+    }
+}
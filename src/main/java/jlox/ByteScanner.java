@@ -0,0 +1,250 @@
+package jlox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static jlox.TokenType.*;
+
+//Scanner for script files that reads the UTF-8 bytes through memory mapped windows, so the
+//file is never copied onto the heap or decoded as a whole and may be larger than 2 GB.
+//Only identifiers, numbers and string literals are decoded. Produces the same tokens as
+//Scanner, with lexemes rebuilt by the TokenBuffer instead of cut from a source String.
+final class ByteScanner {
+    static final long DEFAULT_WINDOW = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final SymbolTable symbols;
+    private final ErrorReporter errors;
+    private final TokenBuffer tokens;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+
+    private long start = 0;
+    private long current = 0;
+    private int line = 1;
+
+    //Bytes of the identifier, number or string being scanned
+    private byte[] text = new byte[64];
+    private int textLength;
+
+    ByteScanner(FileChannel channel, SymbolTable symbols, long windowSize) throws IOException {
+        this(channel, symbols, ErrorReporter.LOX, windowSize);
+    }
+
+    ByteScanner(FileChannel channel, SymbolTable symbols, ErrorReporter errors, long windowSize) throws IOException {
+        if(windowSize < 2) throw new IllegalArgumentException("Window too small: " + windowSize);
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.symbols = symbols;
+        this.errors = errors;
+        this.tokens = new TokenBuffer(symbols, size);
+    }
+
+    static TokenBuffer scan(Path path, SymbolTable symbols) throws IOException {
+        return scan(path, symbols, ErrorReporter.LOX);
+    }
+
+    static TokenBuffer scan(Path path, SymbolTable symbols, ErrorReporter errors) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            return new ByteScanner(channel, symbols, errors, DEFAULT_WINDOW).scan();
+        }
+    }
+
+    TokenBuffer scan() throws IOException {
+        try{
+            while(!isAtEnd()){
+                start = current;
+                scanToken();
+            }
+        } catch (UncheckedIOException error){
+            throw error.getCause();
+        }
+
+        tokens.add(EOF, current, 0, line);
+        return tokens;
+    }
+
+    private void scanToken(){
+        byte c = advance();
+
+        switch (c){
+            case '(': addToken(LEFT_PAREN); break;
+            case ')': addToken(RIGHT_PAREN); break;
+            case '{': addToken(LEFT_BRACE); break;
+            case '}': addToken(RIGHT_BRACE); break;
+            case ',': addToken(COMMA); break;
+            case '.': addToken(DOT); break;
+            case '-': addToken(MINUS); break;
+            case '+': addToken(PLUS); break;
+            case ';': addToken(SEMICOLON); break;
+            case '*': addToken(STAR); break;
+            case '!':
+                addToken(match('=') ? BANG_EQUAL : BANG); break;
+            case '=':
+                addToken(match('=') ? EQUAL_EQUAL: EQUAL); break;
+            case '<':
+                addToken(match('=') ? LESS_EQUAL : LESS); break;
+            case '>':
+                addToken(match('=') ? GREATER_EQUAL : GREATER); break;
+            case '/':
+                if(match('/')){
+                    while(peek() != '\n' && !isAtEnd()) advance(); //Single line comments
+                }
+                else if(match('*')){
+                    while(peek() != '*' && peekNext() != '/' && !isAtEnd()) { //multiline comments
+                        if(peek() == '\n') line++;
+                        advance();
+                    }
+                    advance();
+                    advance();
+                }
+                else{
+                    addToken(SLASH);
+                }
+                break;
+            case ' ':
+            case '\r':
+            case '\t':
+                break;
+            case '\n':
+                line++; break;
+            case '"':
+                string(); break;
+            default:
+                if(isDigit(c)){
+                    number();
+                }
+                else if(isAlpha(c)){
+                    identifier();
+                }
+                else {
+                    errors.error(line, "Unexpected character.");
+                    //One error per character, not per byte of its encoding
+                    while(!isAtEnd() && (peek() & 0xC0) == 0x80) advance();
+                }
+                break;
+        }
+    }
+
+    private void addToken(TokenType type){
+        tokens.add(type, start, (int) (current - start), line);
+    }
+
+    private void string(){
+        textLength = 0;
+        while(peek() != '"' && !isAtEnd()) {
+            if(peek() == '\n') line++;
+            append(advance());
+        }
+        int length = (int) Math.min(Integer.MAX_VALUE, current + 1 - start);
+        String value = new String(text, 0, textLength, StandardCharsets.UTF_8);
+        if(isAtEnd()){
+            errors.error(line, "Unterminated String.");
+            //Same value and lexeme as Scanner gives an unterminated string
+            String lexeme = "\"" + value;
+            value = value.isEmpty() ? value : value.substring(0, value.length() - 1);
+            tokens.add(STRING, start, length - 1, line, value, lexeme);
+            return;
+        }
+        advance();
+        tokens.add(STRING, start, length, line, value);
+    }
+
+    private void number(){
+        textLength = 0;
+        append(at(start));
+        while(isDigit(peek()) && !isAtEnd()) append(advance());
+        if(peek() == '.' && isDigit(peekNext())){
+            append(advance());
+            while(isDigit(peek()) && !isAtEnd()) append(advance());
+        }
+        String lexeme = new String(text, 0, textLength, StandardCharsets.ISO_8859_1);
+        tokens.add(NUMBER, start, textLength, line, Double.parseDouble(lexeme), lexeme);
+    }
+
+    private void identifier(){
+        textLength = 0;
+        append(at(start));
+        while(isAlphaNumeric(peek()) && !isAtEnd()) append(advance());
+        TokenType type = Scanner.keyword(text, 0, textLength);
+        if (type != null){
+            addToken(type);
+            return;
+        }
+        tokens.addIdentifier(start, textLength, line, symbols.intern(text, 0, textLength));
+    }
+
+    private void append(byte b){
+        if(textLength == text.length) text = Arrays.copyOf(text, textLength * 2);
+        text[textLength++] = b;
+    }
+
+    private byte advance(){
+        if(isAtEnd()) return '\0';
+        return at(current++);
+    }
+
+    private boolean match(char c){
+        if(isAtEnd()) return false;
+        if(at(current) != c) return false;
+        current++;
+        return true;
+    }
+
+    private byte peek(){
+        if(isAtEnd()) return '\0';
+        return at(current);
+    }
+
+    private byte peekNext(){
+        if(current + 1 >= size) return '\0';
+        return at(current + 1);
+    }
+
+    private byte at(long position){
+        if(position < windowStart || position >= windowEnd) map(position);
+        return window.get((int) (position - windowStart));
+    }
+
+    //Windows are mapped in order as scanning moves forward, a token's bytes are copied as
+    //they are read so nothing behind the current position is needed again. Starting at
+    //the current byte keeps peekNext from bouncing between two windows.
+    private void map(long position){
+        long base = Math.min(position, current);
+        long length = Math.min(windowSize, size - base);
+        try{
+            window = channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+        } catch (IOException error){
+            throw new UncheckedIOException(error);
+        }
+        windowStart = base;
+        windowEnd = base + length;
+    }
+
+    private boolean isAlpha(byte c){
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private boolean isDigit(byte c){
+        return c >= '0' && c <= '9';
+    }
+
+    private boolean isAlphaNumeric(byte c){
+        return isAlpha(c) || isDigit(c);
+    }
+
+    private boolean isAtEnd(){
+        return current >= size;
+    }
+}
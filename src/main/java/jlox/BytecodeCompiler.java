@@ -0,0 +1,320 @@
+package jlox;
+
+import jlox.vm.Chunk;
+import jlox.vm.VM;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static jlox.vm.OpCode.*;
+
+//Compiles the AST into a Chunk for the stack VM, locals live in stack slots
+public class BytecodeCompiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    private static class CompileError extends RuntimeException{
+
+    }
+
+    private record Local(int symbol, int depth) {
+    }
+
+    private final VM vm;
+    private final ErrorReporter errors;
+    private final List<Local> locals = new ArrayList<>();
+    private Chunk chunk;
+    private int scopeDepth = 0;
+    private int line = 1;
+
+    //Values currently on the VM stack, used to size it up front
+    private int stackDepth = 0;
+    private int maxStack = 0;
+
+    BytecodeCompiler(VM vm){
+        this(vm, ErrorReporter.LOX);
+    }
+
+    BytecodeCompiler(VM vm, ErrorReporter errors){
+        this.vm = vm;
+        this.errors = errors;
+    }
+
+    //Null if the program doesn't fit the bytecode's 16 bit operands, the error has
+    //been reported like a syntax error
+    Chunk compile(List<Stmt> statements){
+        chunk = new Chunk();
+        try{
+            for(Stmt statement: statements){
+                compile(statement);
+            }
+        } catch (CompileError error){
+            return null;
+        }
+        emit(RETURN, 0);
+        chunk.maxStack(maxStack);
+        return chunk;
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        scopeDepth++;
+        for(Stmt statement: stmt.statements){
+            compile(statement);
+        }
+        scopeDepth--;
+
+        int count = 0;
+        while(!locals.isEmpty() && locals.get(locals.size() - 1).depth > scopeDepth){
+            locals.remove(locals.size() - 1);
+            count++;
+        }
+        if(count == 1){
+            emit(POP, -1);
+        }
+        else if(count > 1){
+            emitWithShort(POPN, count, -count);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        compile(stmt.expression);
+        emit(POP, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        compile(stmt.condition);
+        int thenJump = emitJump(JUMP_IF_FALSE);
+        emit(POP, -1);
+        compile(stmt.thenBranch);
+        int elseJump = emitJump(JUMP);
+
+        //The condition is still on the stack when the else branch starts
+        patchJump(thenJump);
+        stackDepth++;
+        emit(POP, -1);
+        if(stmt.elseBranch != null) compile(stmt.elseBranch);
+        patchJump(elseJump);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        compile(stmt.expression);
+        emit(PRINT, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        line = stmt.name.line;
+        if(stmt.initializer != null){
+            compile(stmt.initializer);
+        }
+        else{
+            emit(NULL, 1);
+        }
+
+        if(scopeDepth == 0){
+            emitWithShort(DEFINE_GLOBAL, vm.globalSlot(stmt.name.lexeme), -1);
+            return null;
+        }
+
+        //Redeclaring a name in the same block reuses its slot
+        int slot = resolveLocal(stmt.name);
+        if(slot >= 0 && locals.get(slot).depth == scopeDepth){
+            emitWithShort(SET_LOCAL, slot, 0);
+            emit(POP, -1);
+            return null;
+        }
+
+        //The initializer value stays on the stack as the local itself. Locals are told
+        //apart by symbol alone.
+        if(stmt.name.symbol < 0) throw new IllegalArgumentException("Identifier '" + stmt.name.lexeme + "' has no symbol");
+        locals.add(new Local(stmt.name.symbol, scopeDepth));
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        int loopStart = chunk.count();
+        compile(stmt.condition);
+        int exitJump = emitJump(JUMP_IF_FALSE);
+        emit(POP, -1);
+        compile(stmt.body);
+        if(stmt.increment != null){
+            compile(stmt.increment);
+            emit(POP, -1);
+        }
+        line = stmt.keyword.line;
+        emitLoop(loopStart);
+
+        patchJump(exitJump);
+        stackDepth++;
+        emit(POP, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        compile(expr.value);
+        line = expr.name.line;
+
+        int slot = resolveLocal(expr.name);
+        if(slot >= 0){
+            emitWithShort(SET_LOCAL, slot, 0);
+        }
+        else{
+            emitWithShort(SET_GLOBAL, vm.globalSlot(expr.name.lexeme), 0);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        compile(expr.left);
+        compile(expr.right);
+        line = expr.operator.line;
+
+        switch (expr.operator.type) {
+            case MINUS -> emit(SUBTRACT, -1);
+            case STAR -> emit(MULTIPLY, -1);
+            case SLASH -> emit(DIVIDE, -1);
+            case PLUS -> emit(ADD, -1);
+            case GREATER -> emit(GREATER, -1);
+            case GREATER_EQUAL -> emit(GREATER_EQUAL, -1);
+            case LESS -> emit(LESS, -1);
+            case LESS_EQUAL -> emit(LESS_EQUAL, -1);
+            case BANG_EQUAL -> emit(NOT_EQUAL, -1);
+            case EQUAL_EQUAL -> emit(EQUAL, -1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        compile(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        if(expr.value == null){
+            emit(NULL, 1);
+        }
+        else if(expr.value instanceof Boolean){
+            emit((boolean) expr.value ? TRUE : FALSE, 1);
+        }
+        else{
+            emitWithShort(CONSTANT, chunk.addConstant(expr.value), 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        compile(expr.left);
+        line = expr.operator.line;
+
+        //Short circuit leaves the left operand as the result
+        int endJump = emitJump(expr.operator.type == TokenType.OR ? JUMP_IF_TRUE : JUMP_IF_FALSE);
+        emit(POP, -1);
+        compile(expr.right);
+        patchJump(endJump);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        compile(expr.right);
+        line = expr.operator.line;
+
+        switch (expr.operator.type) {
+            case BANG -> emit(NOT, 0);
+            case MINUS -> emit(NEGATE, 0);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        line = expr.name.line;
+
+        int slot = resolveLocal(expr.name);
+        if(slot >= 0){
+            emitWithShort(GET_LOCAL, slot, 1);
+        }
+        else{
+            emitWithShort(GET_GLOBAL, vm.globalSlot(expr.name.lexeme), 1);
+        }
+        return null;
+    }
+
+    private void compile(Stmt stmt){
+        stmt.accept(this);
+    }
+
+    private void compile(Expr expr){
+        expr.accept(this);
+    }
+
+    private int resolveLocal(Token name){
+        for(int i = locals.size() - 1; i >= 0; i--){
+            if(locals.get(i).symbol == name.symbol) return i;
+        }
+        return -1;
+    }
+
+    private void emit(byte op, int stackEffect){
+        chunk.write(op, line);
+        stackDepth += stackEffect;
+        if(stackDepth > maxStack) maxStack = stackDepth;
+    }
+
+    private void emitWithShort(byte op, int operand, int stackEffect){
+        if(operand > 0xffff){
+            throw error(switch (op) {
+                case CONSTANT -> "Too many constants in one chunk.";
+                case DEFINE_GLOBAL, GET_GLOBAL, SET_GLOBAL -> "Too many global variables.";
+                default -> "Too many local variables in scope.";
+            });
+        }
+        emit(op, stackEffect);
+        chunk.writeShort(operand, line);
+    }
+
+    //Returns the offset of the operand to patch once the target is known
+    private int emitJump(byte op){
+        emit(op, 0);
+        chunk.writeShort(0xffff, line);
+        return chunk.count() - 2;
+    }
+
+    private void patchJump(int offset){
+        int jump = chunk.count() - offset - 2;
+        if(jump > 0xffff){
+            //At the line of the jump, not of the code jumped over
+            throw error(chunk.line(offset), "Too much code to jump over.");
+        }
+        chunk.patchShort(offset, jump);
+    }
+
+    private void emitLoop(int loopStart){
+        emit(LOOP, 0);
+        int offset = chunk.count() - loopStart + 2;
+        if(offset > 0xffff){
+            throw error("Loop body too large.");
+        }
+        chunk.writeShort(offset, line);
+    }
+
+    private CompileError error(String msg){
+        return error(line, msg);
+    }
+
+    private CompileError error(int line, String msg){
+        errors.error(line, msg);
+        return new CompileError();
+    }
+}
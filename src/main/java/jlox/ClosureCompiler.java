@@ -0,0 +1,486 @@
+package jlox;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+import jlox.TypeAnalyzer.Binding;
+import jlox.TypeAnalyzer.Type;
+
+//Compiles the AST once into a tree of Java closures over a Frame.
+//Operator choice, variable locations and value types are all decided here, so running
+//the program is only closure calls. Variables that are only ever assigned numbers are
+//kept in double slots and read through ToDoubleFunction, values are boxed only where a
+//number meets dynamically typed code (printing a dynamic value, concatenation, ...).
+public class ClosureCompiler implements Stmt.Visitor<Consumer<ClosureCompiler.Frame>> {
+    static final class Frame {
+        final Object[] values;
+        final double[] numbers;
+        final Object[] globals;
+        final double[] globalNumbers;
+
+        Frame(int size, Object[] globals, double[] globalNumbers){
+            this.values = new Object[size];
+            this.numbers = new double[size];
+            this.globals = globals;
+            this.globalNumbers = globalNumbers;
+        }
+    }
+
+    //Global slot holding an unboxed number in globalNumbers
+    private static final Object NUMBER = new Object();
+    //Marks global slots that no 'var' has filled yet
+    private static final Object UNDEFINED = new Object();
+
+    private final Map<String, Integer> globalSlots = new HashMap<>();
+    private Object[] globals = new Object[0];
+    private double[] globalNumbers = new double[0];
+
+    private final TypeAnalyzer analyzer = new TypeAnalyzer(this::globalSlot);
+    private final OutputSink out;
+
+    ClosureCompiler(){
+        this(OutputSink.stdout(false));
+    }
+
+    ClosureCompiler(OutputSink out){
+        this.out = out;
+    }
+
+    Runnable compile(List<Stmt> statements){
+        analyzer.analyze(statements);
+
+        Consumer<Frame> program = block(statements);
+        ensureGlobals();
+
+        int size = analyzer.frameSize();
+        return () -> {
+            try{
+                program.accept(new Frame(size, globals, globalNumbers));
+            } finally {
+                out.flush();
+            }
+        };
+    }
+
+    private int globalSlot(String name){
+        return globalSlots.computeIfAbsent(name, key -> globalSlots.size());
+    }
+
+    private void ensureGlobals(){
+        if(globals.length < globalSlots.size()){
+            int length = globals.length;
+            globals = Arrays.copyOf(globals, globalSlots.size());
+            globalNumbers = Arrays.copyOf(globalNumbers, globalSlots.size());
+            Arrays.fill(globals, length, globals.length, UNDEFINED);
+        }
+    }
+
+    private Type type(Expr expr){
+        return analyzer.type(expr);
+    }
+
+    //---------------------------------------------------------------------------------
+    // Statements
+
+    private Consumer<Frame> statement(Stmt stmt){
+        return stmt.accept(this);
+    }
+
+    @Override
+    public Consumer<Frame> visitBlockStmt(Stmt.Block stmt) {
+        return block(stmt.statements);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Consumer<Frame> block(List<Stmt> statements){
+        Consumer<Frame>[] body = new Consumer[statements.size()];
+        for(int i = 0; i < body.length; i++){
+            body[i] = statement(statements.get(i));
+        }
+
+        return switch (body.length) {
+            case 0 -> frame -> { };
+            case 1 -> body[0];
+            case 2 -> {
+                Consumer<Frame> first = body[0];
+                Consumer<Frame> second = body[1];
+                yield frame -> {
+                    first.accept(frame);
+                    second.accept(frame);
+                };
+            }
+            default -> frame -> {
+                for(Consumer<Frame> statement: body){
+                    statement.accept(frame);
+                }
+            };
+        };
+    }
+
+    @Override
+    public Consumer<Frame> visitExpressionStmt(Stmt.Expression stmt) {
+        Expr expr = stmt.expression;
+        return switch (type(expr)) {
+            case NUMBER -> {
+                ToDoubleFunction<Frame> value = number(expr);
+                yield value::applyAsDouble;
+            }
+            case BOOLEAN -> {
+                Predicate<Frame> value = bool(expr);
+                yield value::test;
+            }
+            case DYNAMIC -> {
+                Function<Frame, Object> value = value(expr);
+                yield value::apply;
+            }
+        };
+    }
+
+    @Override
+    public Consumer<Frame> visitIfStmt(Stmt.If stmt) {
+        Predicate<Frame> condition = condition(stmt.condition);
+        Consumer<Frame> thenBranch = statement(stmt.thenBranch);
+        if(stmt.elseBranch == null){
+            return frame -> {
+                if(condition.test(frame)) thenBranch.accept(frame);
+            };
+        }
+
+        Consumer<Frame> elseBranch = statement(stmt.elseBranch);
+        return frame -> {
+            if(condition.test(frame)){
+                thenBranch.accept(frame);
+            }
+            else{
+                elseBranch.accept(frame);
+            }
+        };
+    }
+
+    @Override
+    public Consumer<Frame> visitPrintStmt(Stmt.Print stmt) {
+        Expr expr = stmt.expression;
+        return switch (type(expr)) {
+            case NUMBER -> {
+                ToDoubleFunction<Frame> value = number(expr);
+                yield frame -> out.println(value.applyAsDouble(frame));
+            }
+            case BOOLEAN -> {
+                Predicate<Frame> value = bool(expr);
+                yield frame -> out.println(value.test(frame));
+            }
+            case DYNAMIC -> {
+                Function<Frame, Object> value = value(expr);
+                yield frame -> JitRuntime.print(value.apply(frame), out);
+            }
+        };
+    }
+
+    @Override
+    public Consumer<Frame> visitVarStmt(Stmt.Var stmt) {
+        Binding binding = analyzer.binding(stmt);
+        int slot = binding.slot;
+
+        if(binding.numeric){
+            ToDoubleFunction<Frame> value = number(stmt.initializer);
+            if(binding.global){
+                return frame -> {
+                    frame.globalNumbers[slot] = value.applyAsDouble(frame);
+                    frame.globals[slot] = NUMBER;
+                };
+            }
+            return frame -> frame.numbers[slot] = value.applyAsDouble(frame);
+        }
+
+        Function<Frame, Object> value = stmt.initializer == null ? frame -> null : value(stmt.initializer);
+        if(binding.global){
+            return frame -> frame.globals[slot] = value.apply(frame);
+        }
+        return frame -> frame.values[slot] = value.apply(frame);
+    }
+
+    @Override
+    public Consumer<Frame> visitWhileStmt(Stmt.While stmt) {
+        Predicate<Frame> condition = condition(stmt.condition);
+        Consumer<Frame> body = statement(stmt.body);
+        if(stmt.increment == null){
+            return frame -> {
+                while(condition.test(frame)){
+                    body.accept(frame);
+                }
+            };
+        }
+
+        Consumer<Frame> increment = visitExpressionStmt(new Stmt.Expression(stmt.increment));
+        return frame -> {
+            while(condition.test(frame)){
+                body.accept(frame);
+                increment.accept(frame);
+            }
+        };
+    }
+
+    //---------------------------------------------------------------------------------
+    // Expressions typed NUMBER
+
+    private ToDoubleFunction<Frame> number(Expr expr){
+        if(expr instanceof Expr.Literal literal){
+            double value = (Double) literal.value;
+            return frame -> value;
+        }
+        if(expr instanceof Expr.Grouping grouping){
+            return number(grouping.expression);
+        }
+        if(expr instanceof Expr.Unary unary){
+            return negate(unary);
+        }
+        if(expr instanceof Expr.Binary binary){
+            return arithmetic(binary);
+        }
+        if(expr instanceof Expr.Logical logical){
+            ToDoubleFunction<Frame> left = number(logical.left);
+            ToDoubleFunction<Frame> right = number(logical.right);
+            //A number is always truthy: 'or' keeps the left side, 'and' takes the right
+            if(logical.operator.type == TokenType.OR) return left;
+            return frame -> {
+                left.applyAsDouble(frame);
+                return right.applyAsDouble(frame);
+            };
+        }
+        if(expr instanceof Expr.Variable variable){
+            return readNumber(variable);
+        }
+        if(expr instanceof Expr.Assign assign){
+            return assignNumber(assign);
+        }
+        throw new IllegalArgumentException("Not a number expression " + expr);
+    }
+
+    private ToDoubleFunction<Frame> negate(Expr.Unary expr){
+        Token operator = expr.operator;
+        if(type(expr.right) == Type.NUMBER){
+            ToDoubleFunction<Frame> right = number(expr.right);
+            return frame -> -right.applyAsDouble(frame);
+        }
+
+        Function<Frame, Object> right = value(expr.right);
+        return frame -> JitRuntime.negate(right.apply(frame), operator);
+    }
+
+    private ToDoubleFunction<Frame> arithmetic(Expr.Binary expr){
+        Token operator = expr.operator;
+        if(type(expr.left) == Type.NUMBER && type(expr.right) == Type.NUMBER){
+            ToDoubleFunction<Frame> left = number(expr.left);
+            ToDoubleFunction<Frame> right = number(expr.right);
+            return switch (operator.type) {
+                case PLUS -> frame -> left.applyAsDouble(frame) + right.applyAsDouble(frame);
+                case MINUS -> frame -> left.applyAsDouble(frame) - right.applyAsDouble(frame);
+                case STAR -> frame -> left.applyAsDouble(frame) * right.applyAsDouble(frame);
+                case SLASH -> frame -> JitRuntime.divide(left.applyAsDouble(frame), right.applyAsDouble(frame), operator);
+                default -> throw new IllegalArgumentException("Not an arithmetic operator " + operator);
+            };
+        }
+
+        //Mixed operand types, check them at runtime after both sides ran
+        Function<Frame, Object> left = value(expr.left);
+        Function<Frame, Object> right = value(expr.right);
+        return switch (operator.type) {
+            case MINUS -> frame -> JitRuntime.subtract(left.apply(frame), right.apply(frame), operator);
+            case STAR -> frame -> JitRuntime.multiply(left.apply(frame), right.apply(frame), operator);
+            case SLASH -> frame -> JitRuntime.divide(left.apply(frame), right.apply(frame), operator);
+            default -> throw new IllegalArgumentException("Not an arithmetic operator " + operator);
+        };
+    }
+
+    private ToDoubleFunction<Frame> readNumber(Expr.Variable expr){
+        Binding binding = analyzer.binding(expr);
+        int slot = binding.slot;
+
+        //Numeric globals are always read after their declaration ran
+        if(!binding.global) return frame -> frame.numbers[slot];
+        return frame -> frame.globalNumbers[slot];
+    }
+
+    private ToDoubleFunction<Frame> assignNumber(Expr.Assign expr){
+        Binding binding = analyzer.binding(expr);
+        int slot = binding.slot;
+        ToDoubleFunction<Frame> value = number(expr.value);
+
+        if(!binding.global){
+            return frame -> frame.numbers[slot] = value.applyAsDouble(frame);
+        }
+        return frame -> frame.globalNumbers[slot] = value.applyAsDouble(frame);
+    }
+
+    //---------------------------------------------------------------------------------
+    // Conditions and expressions typed BOOLEAN
+
+    private Predicate<Frame> condition(Expr expr){
+        return switch (type(expr)) {
+            case BOOLEAN -> bool(expr);
+            case NUMBER -> {
+                ToDoubleFunction<Frame> value = number(expr);
+                yield frame -> {
+                    value.applyAsDouble(frame);
+                    return true;
+                };
+            }
+            case DYNAMIC -> {
+                Function<Frame, Object> value = value(expr);
+                yield frame -> JitRuntime.isTruthy(value.apply(frame));
+            }
+        };
+    }
+
+    private Predicate<Frame> bool(Expr expr){
+        if(expr instanceof Expr.Literal literal){
+            boolean value = (Boolean) literal.value;
+            return frame -> value;
+        }
+        if(expr instanceof Expr.Grouping grouping){
+            return bool(grouping.expression);
+        }
+        if(expr instanceof Expr.Unary unary){
+            Predicate<Frame> right = condition(unary.right);
+            return frame -> !right.test(frame);
+        }
+        if(expr instanceof Expr.Logical logical){
+            Predicate<Frame> left = bool(logical.left);
+            Predicate<Frame> right = bool(logical.right);
+            if(logical.operator.type == TokenType.OR){
+                return frame -> left.test(frame) || right.test(frame);
+            }
+            return frame -> left.test(frame) && right.test(frame);
+        }
+        if(expr instanceof Expr.Binary binary){
+            return comparison(binary);
+        }
+        throw new IllegalArgumentException("Not a boolean expression " + expr);
+    }
+
+    private Predicate<Frame> comparison(Expr.Binary expr){
+        Token operator = expr.operator;
+        if(type(expr.left) == Type.NUMBER && type(expr.right) == Type.NUMBER){
+            ToDoubleFunction<Frame> left = number(expr.left);
+            ToDoubleFunction<Frame> right = number(expr.right);
+            return switch (operator.type) {
+                case GREATER -> frame -> left.applyAsDouble(frame) > right.applyAsDouble(frame);
+                case GREATER_EQUAL -> frame -> left.applyAsDouble(frame) >= right.applyAsDouble(frame);
+                case LESS -> frame -> left.applyAsDouble(frame) < right.applyAsDouble(frame);
+                case LESS_EQUAL -> frame -> left.applyAsDouble(frame) <= right.applyAsDouble(frame);
+                case EQUAL_EQUAL -> frame -> Double.doubleToLongBits(left.applyAsDouble(frame))
+                        == Double.doubleToLongBits(right.applyAsDouble(frame));
+                case BANG_EQUAL -> frame -> Double.doubleToLongBits(left.applyAsDouble(frame))
+                        != Double.doubleToLongBits(right.applyAsDouble(frame));
+                default -> throw new IllegalArgumentException("Not a comparison operator " + operator);
+            };
+        }
+
+        Function<Frame, Object> left = value(expr.left);
+        Function<Frame, Object> right = value(expr.right);
+        return switch (operator.type) {
+            case GREATER -> frame -> JitRuntime.greater(left.apply(frame), right.apply(frame), operator);
+            case GREATER_EQUAL -> frame -> JitRuntime.greaterEqual(left.apply(frame), right.apply(frame), operator);
+            case LESS -> frame -> JitRuntime.less(left.apply(frame), right.apply(frame), operator);
+            case LESS_EQUAL -> frame -> JitRuntime.lessEqual(left.apply(frame), right.apply(frame), operator);
+            case EQUAL_EQUAL -> frame -> JitRuntime.isEqual(left.apply(frame), right.apply(frame));
+            case BANG_EQUAL -> frame -> !JitRuntime.isEqual(left.apply(frame), right.apply(frame));
+            default -> throw new IllegalArgumentException("Not a comparison operator " + operator);
+        };
+    }
+
+    //---------------------------------------------------------------------------------
+    // Expressions typed DYNAMIC, numbers here are boxed Doubles
+
+    private Function<Frame, Object> value(Expr expr){
+        Type type = type(expr);
+        if(type == Type.NUMBER){
+            ToDoubleFunction<Frame> value = number(expr);
+            return value::applyAsDouble;
+        }
+        if(type == Type.BOOLEAN){
+            Predicate<Frame> value = bool(expr);
+            return value::test;
+        }
+
+        if(expr instanceof Expr.Literal literal){
+            Object value = literal.value;
+            return frame -> value;
+        }
+        if(expr instanceof Expr.Grouping grouping){
+            return value(grouping.expression);
+        }
+        if(expr instanceof Expr.Binary binary){
+            return add(binary);
+        }
+        if(expr instanceof Expr.Logical logical){
+            Function<Frame, Object> left = value(logical.left);
+            Function<Frame, Object> right = value(logical.right);
+            if(logical.operator.type == TokenType.OR){
+                return frame -> {
+                    Object result = left.apply(frame);
+                    return JitRuntime.isTruthy(result) ? result : right.apply(frame);
+                };
+            }
+            return frame -> {
+                Object result = left.apply(frame);
+                return !JitRuntime.isTruthy(result) ? result : right.apply(frame);
+            };
+        }
+        if(expr instanceof Expr.Variable variable){
+            return readValue(variable);
+        }
+        if(expr instanceof Expr.Assign assign){
+            return assignValue(assign);
+        }
+        throw new IllegalArgumentException("Unknown expression " + expr);
+    }
+
+    private Function<Frame, Object> add(Expr.Binary expr){
+        Token operator = expr.operator;
+        Function<Frame, Object> left = value(expr.left);
+        Function<Frame, Object> right = value(expr.right);
+        return frame -> JitRuntime.add(left.apply(frame), right.apply(frame), operator);
+    }
+
+    private Function<Frame, Object> readValue(Expr.Variable expr){
+        Binding binding = analyzer.binding(expr);
+        int slot = binding.slot;
+        Token name = expr.name;
+
+        if(!binding.global) return frame -> frame.values[slot];
+        if(analyzer.isDefined(expr)) return frame -> frame.globals[slot];
+        return frame -> {
+            Object value = frame.globals[slot];
+            if(value == UNDEFINED) throw JitRuntime.undefined(name);
+            //Numeric bindings of an earlier REPL line are stored unboxed
+            if(value == NUMBER) return frame.globalNumbers[slot];
+            return value;
+        };
+    }
+
+    private Function<Frame, Object> assignValue(Expr.Assign expr){
+        Binding binding = analyzer.binding(expr);
+        int slot = binding.slot;
+        Token name = expr.name;
+        Function<Frame, Object> value = value(expr.value);
+
+        if(!binding.global){
+            return frame -> frame.values[slot] = value.apply(frame);
+        }
+        if(analyzer.isDefined(expr)){
+            return frame -> frame.globals[slot] = value.apply(frame);
+        }
+        return frame -> {
+            Object result = value.apply(frame);
+            if(frame.globals[slot] == UNDEFINED) throw JitRuntime.undefined(name);
+            return frame.globals[slot] = result;
+        };
+    }
+}
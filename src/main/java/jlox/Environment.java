@@ -1,47 +1,94 @@
 package jlox;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 public class Environment {
+    //Tag stored in values[] when the slot holds an unboxed number in numbers[]
+    static final Object NUMBER = new Object();
+    //Marks global slots that the resolver handed out but no 'var' has filled yet
+    static final Object UNDEFINED = new Object();
+
     final Environment enclosing;
-    private final Map<String, Object> values = new HashMap<>();
+    private Object[] values;
+    private double[] numbers;
 
     Environment(){
         enclosing = null;
+        values = new Object[16];
+        numbers = new double[16];
+        Arrays.fill(values, UNDEFINED);
     }
 
-    Environment(Environment enclosing){
+    Environment(Environment enclosing, int size){
         //Make chain of environment
         this.enclosing = enclosing;
+        this.values = new Object[size];
+        this.numbers = new double[size];
     }
 
-    void define(String name, Object value){
-        values.put(name, value);
+    void define(int slot, Object value, double number){
+        //Only the global environment grows, local sizes are known from the resolver
+        reserve(slot + 1);
+        values[slot] = value;
+        numbers[slot] = number;
     }
 
-    Object get(Token name){
-        if(values.containsKey(name.lexeme)){
-            return values.get(name.lexeme);
+    void reserve(int size){
+        if(size > values.length){
+            int length = values.length;
+            values = Arrays.copyOf(values, Math.max(size, length * 2));
+            numbers = Arrays.copyOf(numbers, values.length);
+            Arrays.fill(values, length, values.length, UNDEFINED);
         }
+    }
 
-        //Check for variable in parent block
-        if(enclosing != null) return enclosing.get(name);
+    //The slot arrays themselves, for compiled code that indexes them directly.
+    //They are replaced when the environment grows, so reserve() first.
+    Object[] values(){
+        return values;
+    }
 
-        throw new RuntimeError(name,"Undefined Variable '" + name.lexeme + "'.");
+    double[] numbers(){
+        return numbers;
     }
 
-    void assign(Token name, Object value){
-        if(values.containsKey(name.lexeme)){
-            values.put(name.lexeme, value);
-            return;
+    //Returns the slot's value or the NUMBER tag, read numberAt for the payload
+    Object get(Token name, int slot){
+        if(slot < values.length && values[slot] != UNDEFINED){
+            return values[slot];
         }
 
-        if(enclosing != null){
-            enclosing.assign(name, value);
+        throw new RuntimeError(name,"Undefined Variable '" + name.lexeme + "'.");
+    }
+
+    void assign(Token name, int slot, Object value, double number){
+        if(slot < values.length && values[slot] != UNDEFINED){
+            values[slot] = value;
+            numbers[slot] = number;
             return;
         }
 
         throw new RuntimeError(name, "Undefined Variable '" + name.lexeme + "'.");
     }
+
+    Object getAt(int slot){
+        return values[slot];
+    }
+
+    double numberAt(int slot){
+        return numbers[slot];
+    }
+
+    void assignAt(int slot, Object value, double number){
+        values[slot] = value;
+        numbers[slot] = number;
+    }
+
+    Environment ancestor(int depth){
+        Environment environment = this;
+        for(int i = 0; i < depth; i++){
+            environment = environment.enclosing;
+        }
+        return environment;
+    }
 }
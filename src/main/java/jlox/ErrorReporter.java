@@ -0,0 +1,63 @@
+package jlox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+//Receives syntax errors from the Scanner and Parser and runtime errors from the Interpreter.
+//LOX prints them the way Lox always has, a Log keeps them so a front end can decide later
+//which ones to report.
+interface ErrorReporter {
+    ErrorReporter LOX = new ErrorReporter() {
+        @Override
+        public void error(int line, String msg) {
+            Lox.error(line, msg);
+        }
+
+        @Override
+        public void error(Token token, String msg) {
+            Lox.error(token, msg);
+        }
+
+        @Override
+        public void runtimeError(RuntimeError error) {
+            Lox.runtimeError(error);
+        }
+    };
+
+    void error(int line, String msg);
+
+    void error(Token token, String msg);
+
+    void runtimeError(RuntimeError error);
+
+    final class Log implements ErrorReporter {
+        private final List<Consumer<ErrorReporter>> entries = new ArrayList<>();
+
+        @Override
+        public void error(int line, String msg) {
+            entries.add(reporter -> reporter.error(line, msg));
+        }
+
+        @Override
+        public void error(Token token, String msg) {
+            entries.add(reporter -> reporter.error(token, msg));
+        }
+
+        @Override
+        public void runtimeError(RuntimeError error) {
+            entries.add(reporter -> reporter.runtimeError(error));
+        }
+
+        boolean isEmpty(){
+            return entries.isEmpty();
+        }
+
+        //Reports everything, in the order it was logged
+        void replay(ErrorReporter reporter){
+            for(Consumer<ErrorReporter> entry: entries){
+                entry.accept(reporter);
+            }
+        }
+    }
+}
@@ -25,6 +25,9 @@ abstract class Expr {
 
     final Token name;
     final Expr value;
+    //Filled in by the Resolver, depth -1 means global
+    int depth = -1;
+    int slot;
   }
   static class Binary extends Expr {
     Binary(Expr left, Token operator, Expr right) {
@@ -41,6 +44,8 @@ abstract class Expr {
     final Expr left;
     final Token operator;
     final Expr right;
+    //Rewritten by the node itself once it has seen its operand types
+    BinaryNode node = BinaryNode.UNINITIALIZED;
   }
   static class Grouping extends Expr {
     Grouping(Expr expression) {
@@ -95,6 +100,8 @@ abstract class Expr {
 
     final Token operator;
     final Expr right;
+    //Rewritten by the node itself once it has seen its operand type
+    UnaryNode node = UnaryNode.UNINITIALIZED;
   }
   static class Variable extends Expr {
     Variable(Token name) {
@@ -107,6 +114,9 @@ abstract class Expr {
     }
 
     final Token name;
+    //Filled in by the Resolver, depth -1 means global
+    int depth = -1;
+    int slot;
   }
 
   abstract <R> R accept(Visitor<R> visitor);
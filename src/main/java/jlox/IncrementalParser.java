@@ -0,0 +1,188 @@
+package jlox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+//Front end for a source that is edited in place, like an editor buffer. It keeps the text,
+//its top level statements and where each one starts. An edit re-lexes and re-parses from
+//the statement before the edit up to the first old statement boundary that the new tokens
+//line up with again, the boundaries Parser.synchronize also recovers at. Statements outside
+//that region are reused, so an edit costs time in proportion to the statements it touches.
+final class IncrementalParser {
+    private final SymbolTable symbols = new SymbolTable();
+    private final ErrorReporter errors;
+
+    private String source = "";
+    private List<Stmt> statements = new ArrayList<>();
+    //Offset of the first token of each statement and the line that offset is on
+    private int[] starts = new int[0];
+    private int[] lines = new int[0];
+    //Line each statement started on when it was parsed, its tokens carry lines as of then
+    private int[] parsedLines = new int[0];
+
+    IncrementalParser(String source){
+        this(source, ErrorReporter.LOX);
+    }
+
+    //Syntax errors are reported for the statements an edit re-parses, errors in
+    //reused statements were reported when they were first parsed
+    IncrementalParser(String source, ErrorReporter errors){
+        this.errors = errors;
+        edit(0, 0, source);
+    }
+
+    String source(){
+        return source;
+    }
+
+    //Reused statements are the same objects as before the edit and are never changed, so
+    //their tokens keep the lines they were parsed with, see lineOffset
+    List<Stmt> statements(){
+        return Collections.unmodifiableList(statements);
+    }
+
+    //Lines to add to the token lines of statement i to get where they are now. Edits
+    //that add or remove lines above a statement only move its start, never its tokens.
+    int lineOffset(int statement){
+        return lines[statement] - parsedLines[statement];
+    }
+
+    void edit(int offset, int removed, String inserted){
+        if(offset < 0 || removed < 0 || offset + removed > source.length()){
+            throw new IndexOutOfBoundsException("Edit " + offset + "+" + removed + " outside 0.." + source.length());
+        }
+
+        String text = source.substring(0, offset) + inserted + source.substring(offset + removed);
+        int delta = inserted.length() - removed;
+        int lineDelta = countLines(inserted, 0, inserted.length()) - countLines(source, offset, offset + removed);
+        int count = statements.size();
+
+        //Start one statement early, its lookahead may have seen the edited token. Going
+        //from offset - 1 also covers a token that ends right where text is inserted.
+        int first = Math.max(0, statementAt(offset - 1) - 1);
+        //First old statement whose leading token the edit doesn't touch
+        int next = first;
+        while(next < count && starts[next] <= offset + removed) next++;
+
+        for(;;){
+            Region region = parse(text, first, next, delta, lineDelta);
+            if(region.complete){
+                splice(region, first, delta, lineDelta);
+                source = text;
+                region.log.replay(errors);
+                return;
+            }
+            //The last declaration ran into the end of the region, take in more statements
+            next = Math.min(count, region.next + Math.max(1, region.next - first));
+        }
+    }
+
+    //Statements re-parsed for an edit and where they start
+    private static final class Region {
+        final List<Stmt> statements = new ArrayList<>();
+        final ErrorReporter.Log log = new ErrorReporter.Log();
+        int[] starts = new int[8];
+        int[] lines = new int[8];
+        int next;
+        boolean complete;
+
+        void add(Stmt statement, int start, int line){
+            int size = statements.size();
+            if(size == starts.length){
+                starts = Arrays.copyOf(starts, size * 2);
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            starts[size] = start;
+            lines[size] = line;
+            statements.add(statement);
+        }
+    }
+
+    //Parses the new text from old statement 'first' up to old statement 'next' or a later
+    //one, wherever the tokens meet an old boundary again
+    private Region parse(String text, int first, int next, int delta, int lineDelta){
+        int count = statements.size();
+        Region region = new Region();
+
+        int from = first == 0 ? 0 : starts[first];
+        int line = first == 0 ? 1 : lines[first];
+        Scanner scanner = new Scanner(text, from, line, symbols, region.log);
+        for(;;){
+            int limit = next < count ? starts[next] + delta : text.length();
+            scanner.scanUntil(limit);
+            if(next == count) break;
+            //A string or comment may have run over the boundary
+            if(scanner.position() == limit && scanner.line() == lines[next] + lineDelta) break;
+            next++;
+        }
+
+        TokenBuffer tokens = scanner.finish();
+        Parser parser = new Parser(tokens, region.log);
+        while(!parser.done()){
+            int index = parser.position();
+            int start = (int) tokens.start(index);
+            //A token's line is where it ends, a string can span lines
+            int startLine = tokens.line(index) - countLines(text, start, start + tokens.length(index));
+            region.add(parser.parseDeclaration(), start, startLine);
+        }
+
+        region.next = next;
+        //Tokens past the end of the region may continue or change the last declaration
+        region.complete = next == count || parser.furthest() < tokens.size() - 1;
+        return region;
+    }
+
+    private void splice(Region region, int first, int delta, int lineDelta){
+        int count = statements.size();
+        int parsed = region.statements.size();
+        int tail = count - region.next;
+        int size = first + parsed + tail;
+
+        List<Stmt> result = new ArrayList<>(size);
+        result.addAll(statements.subList(0, first));
+        result.addAll(region.statements);
+        result.addAll(statements.subList(region.next, count));
+
+        int[] newStarts = new int[size];
+        int[] newLines = new int[size];
+        int[] newParsedLines = new int[size];
+        System.arraycopy(starts, 0, newStarts, 0, first);
+        System.arraycopy(lines, 0, newLines, 0, first);
+        System.arraycopy(parsedLines, 0, newParsedLines, 0, first);
+        System.arraycopy(region.starts, 0, newStarts, first, parsed);
+        System.arraycopy(region.lines, 0, newLines, first, parsed);
+        System.arraycopy(region.lines, 0, newParsedLines, first, parsed);
+        System.arraycopy(parsedLines, region.next, newParsedLines, first + parsed, tail);
+        for(int i = 0; i < tail; i++){
+            newStarts[first + parsed + i] = starts[region.next + i] + delta;
+            newLines[first + parsed + i] = lines[region.next + i] + lineDelta;
+        }
+
+        statements = result;
+        starts = newStarts;
+        lines = newLines;
+        parsedLines = newParsedLines;
+    }
+
+    //Last statement starting at or before offset, -1 if none does
+    private int statementAt(int offset){
+        int low = 0;
+        int high = statements.size() - 1;
+        while(low <= high){
+            int middle = (low + high) >>> 1;
+            if(starts[middle] <= offset) low = middle + 1;
+            else high = middle - 1;
+        }
+        return high;
+    }
+
+    private static int countLines(String text, int from, int to){
+        int count = 0;
+        for(int i = from; i < to; i++){
+            if(text.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
+}
@@ -1,24 +1,61 @@
 package jlox;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import static jlox.Environment.NUMBER;
+
+//Numbers are never boxed: evaluating one returns the NUMBER tag and leaves the value in 'number'
 public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
-    private Environment environment = new Environment();
+    private final Environment globals = new Environment();
+    private final Map<String, Integer> globalSlots = new HashMap<>();
+    private Environment environment = globals;
+    private final OutputSink out;
+    private final ErrorReporter errors;
+    //Null unless the runs are limited
+    private Budget budget;
+    double number;
+
+    Interpreter(){
+        this(OutputSink.stdout(false));
+    }
+
+    Interpreter(OutputSink out){
+        this(out, ErrorReporter.LOX);
+    }
 
-    void interpret(List<Stmt> statements){
+    Interpreter(OutputSink out, ErrorReporter errors){
+        this.out = out;
+        this.errors = errors;
+    }
+
+    //False if a runtime error stopped the run
+    boolean interpret(List<Stmt> statements){
+        if(budget != null) budget.start();
         try{
             for(Stmt statement: statements){
                 execute(statement);
             }
         } catch (RuntimeError error){
-            Lox.runtimeError(error);
+            //Output printed before the error shows up before it
+            out.flush();
+            errors.runtimeError(error);
+            return false;
         }
+        out.flush();
+        return true;
     }
 
     @Override
     public Void visitPrintStmt(Stmt.Print stmt) {
         Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
+        if(value == NUMBER){
+            out.println(number);
+        }
+        else{
+            out.println(stringify(value));
+        }
         return null;
     }
 
@@ -46,7 +83,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
             value = evaluate(stmt.initializer);
         }
 
-        environment.define(stmt.name.lexeme, value);
+        environment.define(stmt.slot, value, number);
         return null;
     }
 
@@ -54,6 +91,8 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
     public Void visitWhileStmt(Stmt.While stmt) {
         while(isTruthy(evaluate(stmt.condition))){
             execute(stmt.body);
+            if(stmt.increment != null) evaluate(stmt.increment);
+            if(budget != null) budget.step(stmt);
         }
         return null;
     }
@@ -61,99 +100,128 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
     @Override
     public Object visitAssignExpr(Expr.Assign expr) {
         Object value = evaluate(expr.value);
-        environment.assign(expr.name, value);
+        if(expr.depth < 0){
+            globals.assign(expr.name, expr.slot, value, number);
+        }
+        else{
+            environment.ancestor(expr.depth).assignAt(expr.slot, value, number);
+        }
         return value;
     }
 
     @Override
     public Object visitVariableExpr(Expr.Variable expr) {
-        return environment.get(expr.name);
+        Environment scope;
+        Object value;
+        if(expr.depth < 0){
+            scope = globals;
+            value = globals.get(expr.name, expr.slot);
+        }
+        else{
+            scope = environment.ancestor(expr.depth);
+            value = scope.getAt(expr.slot);
+        }
+
+        if(value == NUMBER) number = scope.numberAt(expr.slot);
+        return value;
     }
 
     @Override
     public Object visitBinaryExpr(Expr.Binary expr) {
-        Object left = evaluate(expr.left);
-        Object right = evaluate(expr.right);
+        return expr.node.execute(this, expr);
+    }
 
+    //Generic binary operation on already evaluated operands, specialized nodes fall back to it
+    Object binary(Expr.Binary expr, Object left, double leftNumber, Object right, double rightNumber) {
         switch (expr.operator.type) {
             case MINUS -> {
                 checkNumberOperands(expr.operator, left, right);
-                return (double) left - (double) right;
+                return number(leftNumber - rightNumber);
             }
             case STAR -> {
                 checkNumberOperands(expr.operator, left, right);
-                return (double) left * (double) right;
+                return number(leftNumber * rightNumber);
             }
             case SLASH -> {
                 checkNumberOperands(expr.operator, left, right);
-                if ((Double) right == 0) {
+                if (rightNumber == 0) {
                     throw new RuntimeError(expr.operator, "Cannot Divide by zero.");
                 }
-                return (double) left / (double) right;
+                return number(leftNumber / rightNumber);
             }
             case PLUS -> {
-                if (left instanceof Double && right instanceof Double) {
-                    return (double) left + (double) right;
-                }
-                if (left instanceof String && right instanceof String) {
-                    return (String) left + (String) right;
+                if (left == NUMBER && right == NUMBER) {
+                    return number(leftNumber + rightNumber);
                 }
-
-                //Concatenation
-                if (left instanceof String || right instanceof String) {
-                    if (left instanceof Double) {
-                        left = String.valueOf(left);
-                        //removing .0 from Double to String conversion
-                        if (((String) left).endsWith(".0"))
-                            left = ((String) left).substring(0, ((String) left).length() - 2);
-                    } else if (right instanceof Double) {
-                        right = String.valueOf(right);
-                        if (((String) right).endsWith(".0"))
-                            right = ((String) right).substring(0, ((String) right).length() - 2);
-                    }
-
-                    return (String) left + (String) right;
-                }
-                throw new RuntimeError(expr.operator, "Operands must be two numbers or two strings.");
+                return charged(expr.operator, left, concat(expr.operator, left, leftNumber, right, rightNumber));
             }
             case GREATER -> {
                 checkNumberOperands(expr.operator, left, right);
-                return (double) left > (double) right;
+                return leftNumber > rightNumber;
             }
             case GREATER_EQUAL -> {
                 checkNumberOperands(expr.operator, left, right);
-                return (double) left >= (double) right;
+                return leftNumber >= rightNumber;
             }
             case LESS -> {
                 checkNumberOperands(expr.operator, left, right);
-                return (double) left < (double) right;
+                return leftNumber < rightNumber;
             }
             case LESS_EQUAL -> {
                 checkNumberOperands(expr.operator, left, right);
-                return (double) left <= (double) right;
+                return leftNumber <= rightNumber;
             }
             case BANG_EQUAL -> {
-                return !isEqual(left, right);
+                return !isEqual(left, leftNumber, right, rightNumber);
             }
             case EQUAL_EQUAL -> {
-                return isEqual(left, right);
+                return isEqual(left, leftNumber, right, rightNumber);
             }
         }
 
         return null;
     }
 
+    //Charges a concatenation to the budget, if there is one. Only what was added counts,
+    //the left operand's characters are usually shared with the result.
+    CharSequence charged(Token operator, Object left, CharSequence result) {
+        if (budget != null) {
+            int added = result.length() - (left instanceof CharSequence string ? string.length() : 0);
+            budget.allocate(Budget.STRING_BYTES + 2L * added, operator);
+        }
+        return result;
+    }
+
+    private CharSequence concat(Token operator, Object left, double leftNumber, Object right, double rightNumber) {
+        if (left instanceof CharSequence && right instanceof CharSequence) {
+            return LoxString.concat((CharSequence) left, (CharSequence) right);
+        }
+
+        //Concatenation
+        if (left instanceof CharSequence || right instanceof CharSequence) {
+            if (left == NUMBER) {
+                return LoxString.concat(leftNumber, (CharSequence) right);
+            } else if (right == NUMBER) {
+                return LoxString.concat((CharSequence) left, rightNumber);
+            }
+        }
+        throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+    }
+
     @Override
     public Object visitUnaryExpr(Expr.Unary expr) {
-        Object right = evaluate(expr.right);
+        return expr.node.execute(this, expr);
+    }
 
+    //Generic unary operation on an already evaluated operand, specialized nodes fall back to it
+    Object unary(Expr.Unary expr, Object right, double rightNumber) {
         switch (expr.operator.type) {
             case BANG -> {
                 return !isTruthy(right);
             }
             case MINUS -> {
                 checkNumberOperand(expr.operator, right);
-                return -(double) right;
+                return number(-rightNumber);
             }
         }
 
@@ -167,11 +235,13 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
 
     @Override
     public Object visitLiteralExpr(Expr.Literal expr) {
+        if(expr.value instanceof Double) return number((Double) expr.value);
         return expr.value;
     }
 
     @Override
     public Object visitLogicalExpr(Expr.Logical expr) {
+        //A NUMBER tag returned from here still has its payload in 'number'
         Object left = evaluate(expr.left);
 
         if(expr.operator.type == TokenType.OR){
@@ -185,16 +255,53 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
     }
 
     public Void visitBlockStmt(Stmt.Block stmt){
-        executeBlock(stmt.statements, new Environment(environment));
+        //Empty blocks do no work, loops around them are still counted at their back-edge
+        if(budget != null && !stmt.statements.isEmpty()){
+            budget.step(stmt);
+            if(stmt.slots > 0) budget.allocate(Budget.ENVIRONMENT_BYTES + Budget.SLOT_BYTES * stmt.slots, stmt);
+        }
+        //A block without declarations has no scope of its own, see Resolver
+        if(stmt.slots == 0){
+            for(Stmt statement: stmt.statements){
+                execute(statement);
+            }
+            return null;
+        }
+        executeBlock(stmt.statements, new Environment(environment, stmt.slots));
         return null;
     }
 
 
-    private Object evaluate(Expr expr){
+    //Limits every later run, null to lift them
+    void budget(Budget budget){
+        this.budget = budget;
+    }
+
+    //Global slots outlive a single run so REPL lines can see earlier declarations. Every
+    //backend's globals follow this rule.
+    int globalSlot(String name){
+        return globalSlots.computeIfAbsent(name, key -> globalSlots.size());
+    }
+
+    int globalCount(){
+        return globalSlots.size();
+    }
+
+    //Shared with JitCompiler, so compiled code and the fallback see the same variables
+    Environment globals(){
+        return globals;
+    }
+
+    OutputSink out(){
+        return out;
+    }
+
+    //ProfilingInterpreter overrides these two to time every node
+    Object evaluate(Expr expr){
         return expr.accept(this);
     }
 
-    private void execute(Stmt stmt){
+    void execute(Stmt stmt){
         stmt.accept(this);
     }
 
@@ -212,38 +319,45 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
         }
     }
 
+    //Puts a result in the number register and returns the tag that points at it
+    Object number(double value){
+        number = value;
+        return NUMBER;
+    }
+
+    //Only valid right after evaluating, the register is reused by the next number
     private String stringify(Object object){
         if(object == null) return "null";
-
-        if(object instanceof Double){
-            String text = object.toString();
-            if(text.endsWith(".0")){
-                text = text.substring(0, text.length() - 2); //remove .0
-            }
-            return text;
-        }
-
+        if(object == NUMBER) return stringify(number);
         return object.toString();
     }
 
+    private String stringify(double number){
+        return NumberFormatter.format(number);
+    }
 
-    private boolean isEqual(Object a, Object b){
+    //Numbers compare like Double.equals so -0 and 0 stay distinct, on every backend
+    private boolean isEqual(Object a, double aNumber, Object b, double bNumber){
+        if(a == NUMBER || b == NUMBER){
+            return a == b && Double.doubleToLongBits(aNumber) == Double.doubleToLongBits(bNumber);
+        }
         if(a == null && b == null) return true;
         if(a == null) return false;
+        if(a instanceof CharSequence x && b instanceof CharSequence y) return LoxString.contentEquals(x, y);
         return a.equals(b);
     }
 
     private void checkNumberOperand(Token operator, Object operand){
-        if(operand instanceof Double) return;
+        if(operand == NUMBER) return;
         throw new RuntimeError(operator, "Operand must be a number.");
     }
 
     private void checkNumberOperands(Token operator, Object op1, Object op2){
-        if(op1 instanceof Double && op2 instanceof Double) return;
+        if(op1 == NUMBER && op2 == NUMBER) return;
         throw new RuntimeError(operator, "Operands must be numbers.");
     }
 
-    private boolean isTruthy(Object object){
+    boolean isTruthy(Object object){
         if(object == null) return false;
         if(object instanceof Boolean) return (boolean)object;
         return true;
@@ -0,0 +1,92 @@
+package jlox;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//Live counters of one interpreter, registered with the platform MBean server as
+//jlox:type=Interpreter,id=<n> for --jmx. Counters are LongAdders so interpreters on other
+//threads, and monitoring reading them, never contend on a shared cache line.
+final class InterpreterStats implements InterpreterStatsMBean {
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    final LongAdder statements = new LongAdder();
+    final LongAdder expressions = new LongAdder();
+    final LongAdder environments = new LongAdder();
+    final LongAdder runtimeErrors = new LongAdder();
+    final LongAdder parseErrors = new LongAdder();
+    final LongAdder scanNanos = new LongAdder();
+    final LongAdder parseNanos = new LongAdder();
+    final LongAdder executeNanos = new LongAdder();
+    //Written by the interpreter thread only, release stores are enough for readers to see it
+    final AtomicInteger scopeDepth = new AtomicInteger();
+    final LongAccumulator maxScopeDepth = new LongAccumulator(Math::max, 0);
+    private ObjectName name;
+
+    ObjectName register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName("jlox:type=Interpreter,id=" + IDS.incrementAndGet());
+        server.registerMBean(this, name);
+        return name;
+    }
+
+    void unregister() throws JMException {
+        if(name == null) return;
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        name = null;
+    }
+
+    @Override
+    public long getStatementsExecuted(){
+        return statements.sum();
+    }
+
+    @Override
+    public long getExpressionsEvaluated(){
+        return expressions.sum();
+    }
+
+    @Override
+    public long getEnvironmentsCreated(){
+        return environments.sum();
+    }
+
+    @Override
+    public int getScopeDepth(){
+        return scopeDepth.get();
+    }
+
+    @Override
+    public int getMaxScopeDepth(){
+        return (int) maxScopeDepth.get();
+    }
+
+    @Override
+    public long getRuntimeErrors(){
+        return runtimeErrors.sum();
+    }
+
+    @Override
+    public long getParseErrors(){
+        return parseErrors.sum();
+    }
+
+    @Override
+    public long getScanNanos(){
+        return scanNanos.sum();
+    }
+
+    @Override
+    public long getParseNanos(){
+        return parseNanos.sum();
+    }
+
+    @Override
+    public long getExecuteNanos(){
+        return executeNanos.sum();
+    }
+}
@@ -0,0 +1,24 @@
+package jlox;
+
+//Management interface of InterpreterStats, public because JMX only exposes public interfaces
+public interface InterpreterStatsMBean {
+    long getStatementsExecuted();
+
+    long getExpressionsEvaluated();
+
+    long getEnvironmentsCreated();
+
+    int getScopeDepth();
+
+    int getMaxScopeDepth();
+
+    long getRuntimeErrors();
+
+    long getParseErrors();
+
+    long getScanNanos();
+
+    long getParseNanos();
+
+    long getExecuteNanos();
+}
@@ -0,0 +1,577 @@
+package jlox;
+
+import jlox.TypeAnalyzer.Binding;
+import jlox.TypeAnalyzer.Type;
+import jlox.jit.ClassFile;
+import jlox.jit.ClassTooLargeException;
+import jlox.jit.Code;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static jlox.jit.Opcodes.*;
+
+//Compiles a whole program into one static JVM method and loads it as a hidden class,
+//so HotSpot compiles Lox code like any other Java method. Types come from TypeAnalyzer:
+//numeric locals become double JVM locals and numeric arithmetic is plain dadd/dsub/...,
+//everything else is an Object local handled by JitRuntime, with boxing only where a
+//number meets dynamically typed code. Globals are the Interpreter's own, so a program
+//too large for one JVM method simply runs on the Interpreter instead.
+public class JitCompiler implements Stmt.Visitor<Void> {
+    //run(Object[] constants, Object[] globalValues, double[] globalNumbers, OutputSink out)
+    private static final MethodType RUN = MethodType.methodType(
+            void.class, Object[].class, Object[].class, double[].class, OutputSink.class);
+    private static final int CONSTANTS = 0;
+    private static final int GLOBAL_VALUES = 1;
+    private static final int GLOBAL_NUMBERS = 2;
+    private static final int OUT = 3;
+
+    private static final String OBJECT = "Ljava/lang/Object;";
+    private static final String TOKEN = "Ljlox/Token;";
+    private static final String SINK = "Ljlox/OutputSink;";
+    private static final String GLOBALS = "[Ljava/lang/Object;[DI";
+
+    //A native image can't load classes at runtime, programs run on the Interpreter there
+    private static final boolean NATIVE_IMAGE = System.getProperty("org.graalvm.nativeimage.imagecode") != null;
+
+    private final Interpreter interpreter;
+    private final TypeAnalyzer analyzer;
+
+    //Per compilation state
+    private Code code;
+    private final Map<Binding, Integer> locals = new IdentityHashMap<>();
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Token, Integer> constantIndex = new IdentityHashMap<>();
+
+    JitCompiler(Interpreter interpreter){
+        this.interpreter = interpreter;
+        this.analyzer = new TypeAnalyzer(interpreter::globalSlot);
+    }
+
+    Runnable compile(List<Stmt> statements){
+        if(NATIVE_IMAGE) return interpreted(statements);
+        analyzer.analyze(statements);
+
+        MethodHandle program;
+        try{
+            program = load(generate(statements));
+        } catch (ClassTooLargeException error){
+            return interpreted(statements);
+        }
+
+        Object[] tokens = constants.toArray();
+        Environment globals = interpreter.globals();
+        int globalCount = interpreter.globalCount();
+        OutputSink out = interpreter.out();
+        return () -> {
+            //Compiled code indexes the arrays directly, so they must not grow while it runs
+            globals.reserve(globalCount);
+            try{
+                program.invokeExact(tokens, globals.values(), globals.numbers(), out);
+            } catch (RuntimeException | Error error){
+                throw error;
+            } catch (Throwable error){
+                throw new IllegalStateException(error);
+            } finally {
+                out.flush();
+            }
+        };
+    }
+
+    private Runnable interpreted(List<Stmt> statements){
+        return () -> {
+            Resolver resolver = new Resolver(interpreter);
+            resolver.resolve(statements);
+            interpreter.interpret(statements);
+        };
+    }
+
+    private byte[] generate(List<Stmt> statements){
+        locals.clear();
+        constants.clear();
+        constantIndex.clear();
+
+        ClassFile classFile = new ClassFile("jlox/JitCode");
+        code = classFile.method("run", RUN.toMethodDescriptorString());
+        for(Stmt statement: statements){
+            statement(statement);
+        }
+        code.insn(RETURN);
+        return classFile.toByteArray();
+    }
+
+    //Hidden classes aren't tied to a class loader, each REPL line's class is
+    //unloaded once its Runnable is gone
+    private static MethodHandle load(byte[] bytes){
+        try{
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return lookup.findStatic(lookup.lookupClass(), "run", RUN);
+        } catch (IllegalAccessException | NoSuchMethodException error){
+            throw new IllegalStateException(error);
+        }
+    }
+
+    private Type type(Expr expr){
+        return analyzer.type(expr);
+    }
+
+    //Tokens reach the generated code through the constants array, for runtime errors
+    private void token(Token token){
+        Integer index = constantIndex.get(token);
+        if(index == null){
+            index = constants.size();
+            if(index > Short.MAX_VALUE) throw new ClassTooLargeException("Too many constants.");
+            constants.add(token);
+            constantIndex.put(token, index);
+        }
+        code.local(ALOAD, CONSTANTS);
+        code.pushInt(index);
+        code.insn(AALOAD);
+        code.checkCast("jlox/Token");
+    }
+
+    private int local(Binding binding){
+        return locals.computeIfAbsent(binding, key -> code.newLocal(key.numeric ? 2 : 1));
+    }
+
+    private void runtime(String name, String descriptor){
+        code.invokeStatic(JitRuntime.NAME, name, descriptor);
+    }
+
+    //---------------------------------------------------------------------------------
+    // Statements
+
+    private void statement(Stmt stmt){
+        stmt.accept(this);
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        //Sibling blocks reuse the JVM locals of the ones before them
+        int mark = code.localMark();
+        for(Stmt statement: stmt.statements){
+            statement(statement);
+        }
+        code.releaseLocals(mark);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        Expr expr = stmt.expression;
+        switch (type(expr)) {
+            case NUMBER -> {
+                number(expr);
+                code.insn(POP2);
+            }
+            case BOOLEAN -> {
+                bool(expr);
+                code.insn(POP);
+            }
+            case DYNAMIC -> {
+                value(expr);
+                code.insn(POP);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        Code.Label elseBranch = code.label();
+        condition(stmt.condition);
+        code.jump(IFEQ, elseBranch);
+        statement(stmt.thenBranch);
+
+        if(stmt.elseBranch == null){
+            code.mark(elseBranch);
+            return null;
+        }
+
+        Code.Label end = code.label();
+        code.jump(GOTO, end);
+        code.mark(elseBranch);
+        statement(stmt.elseBranch);
+        code.mark(end);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        Expr expr = stmt.expression;
+        switch (type(expr)) {
+            case NUMBER -> {
+                number(expr);
+                code.local(ALOAD, OUT);
+                runtime("print", "(D" + SINK + ")V");
+            }
+            case BOOLEAN -> {
+                bool(expr);
+                code.local(ALOAD, OUT);
+                runtime("print", "(Z" + SINK + ")V");
+            }
+            case DYNAMIC -> {
+                value(expr);
+                code.local(ALOAD, OUT);
+                runtime("print", "(" + OBJECT + SINK + ")V");
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        Binding binding = analyzer.binding(stmt);
+
+        if(binding.numeric){
+            if(binding.global){
+                code.local(ALOAD, GLOBAL_NUMBERS);
+                code.pushInt(binding.slot);
+                number(stmt.initializer);
+                code.insn(DASTORE);
+                code.local(ALOAD, GLOBAL_VALUES);
+                code.pushInt(binding.slot);
+                code.getStatic("jlox/Environment", "NUMBER", OBJECT);
+                code.insn(AASTORE);
+            }
+            else{
+                number(stmt.initializer);
+                code.local(DSTORE, local(binding));
+            }
+            return null;
+        }
+
+        if(stmt.initializer == null){
+            code.insn(ACONST_NULL);
+        }
+        else{
+            value(stmt.initializer);
+        }
+        if(binding.global){
+            globals(binding);
+            runtime("define", "(" + OBJECT + GLOBALS + ")V");
+        }
+        else{
+            code.local(ASTORE, local(binding));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        Code.Label start = code.label();
+        Code.Label end = code.label();
+        code.mark(start);
+        condition(stmt.condition);
+        code.jump(IFEQ, end);
+        statement(stmt.body);
+        if(stmt.increment != null) visitExpressionStmt(new Stmt.Expression(stmt.increment));
+        code.jump(GOTO, start);
+        code.mark(end);
+        return null;
+    }
+
+    //---------------------------------------------------------------------------------
+    // Expressions typed NUMBER, leave a double on the stack
+
+    private void number(Expr expr){
+        if(expr instanceof Expr.Literal literal){
+            code.pushDouble((Double) literal.value);
+        }
+        else if(expr instanceof Expr.Grouping grouping){
+            number(grouping.expression);
+        }
+        else if(expr instanceof Expr.Unary unary){
+            negate(unary);
+        }
+        else if(expr instanceof Expr.Binary binary){
+            arithmetic(binary);
+        }
+        else if(expr instanceof Expr.Logical logical){
+            //A number is always truthy: 'or' keeps the left side, 'and' takes the right
+            number(logical.left);
+            if(logical.operator.type == TokenType.AND){
+                code.insn(POP2);
+                number(logical.right);
+            }
+        }
+        else if(expr instanceof Expr.Variable variable){
+            Binding binding = analyzer.binding(variable);
+            //Numeric globals are always read after their declaration ran
+            if(binding.global){
+                code.local(ALOAD, GLOBAL_NUMBERS);
+                code.pushInt(binding.slot);
+                code.insn(DALOAD);
+            }
+            else{
+                code.local(DLOAD, local(binding));
+            }
+        }
+        else if(expr instanceof Expr.Assign assign){
+            Binding binding = analyzer.binding(assign);
+            if(binding.global){
+                code.local(ALOAD, GLOBAL_NUMBERS);
+                code.pushInt(binding.slot);
+                number(assign.value);
+                code.insn(DUP2_X2);
+                code.insn(DASTORE);
+            }
+            else{
+                number(assign.value);
+                code.insn(DUP2);
+                code.local(DSTORE, local(binding));
+            }
+        }
+        else{
+            throw new IllegalArgumentException("Not a number expression " + expr);
+        }
+    }
+
+    private void negate(Expr.Unary expr){
+        if(type(expr.right) == Type.NUMBER){
+            number(expr.right);
+            code.insn(DNEG);
+            return;
+        }
+
+        value(expr.right);
+        token(expr.operator);
+        runtime("negate", "(" + OBJECT + TOKEN + ")D");
+    }
+
+    private void arithmetic(Expr.Binary expr){
+        Token operator = expr.operator;
+        if(type(expr.left) == Type.NUMBER && type(expr.right) == Type.NUMBER){
+            number(expr.left);
+            number(expr.right);
+            switch (operator.type) {
+                case PLUS -> code.insn(DADD);
+                case MINUS -> code.insn(DSUB);
+                case STAR -> code.insn(DMUL);
+                case SLASH -> {
+                    token(operator);
+                    runtime("divide", "(DD" + TOKEN + ")D");
+                }
+                default -> throw new IllegalArgumentException("Not an arithmetic operator " + operator);
+            }
+            return;
+        }
+
+        //Mixed operand types, checked at runtime after both sides ran
+        value(expr.left);
+        value(expr.right);
+        token(operator);
+        String descriptor = "(" + OBJECT + OBJECT + TOKEN + ")D";
+        switch (operator.type) {
+            case MINUS -> runtime("subtract", descriptor);
+            case STAR -> runtime("multiply", descriptor);
+            case SLASH -> runtime("divide", descriptor);
+            default -> throw new IllegalArgumentException("Not an arithmetic operator " + operator);
+        }
+    }
+
+    //---------------------------------------------------------------------------------
+    // Conditions and expressions typed BOOLEAN, leave an int 0 or 1 on the stack
+
+    private void condition(Expr expr){
+        switch (type(expr)) {
+            case BOOLEAN -> bool(expr);
+            case NUMBER -> {
+                number(expr);
+                code.insn(POP2);
+                code.pushInt(1);
+            }
+            case DYNAMIC -> {
+                value(expr);
+                runtime("isTruthy", "(" + OBJECT + ")Z");
+            }
+        }
+    }
+
+    private void bool(Expr expr){
+        if(expr instanceof Expr.Literal literal){
+            code.pushInt((Boolean) literal.value ? 1 : 0);
+        }
+        else if(expr instanceof Expr.Grouping grouping){
+            bool(grouping.expression);
+        }
+        else if(expr instanceof Expr.Unary unary){
+            condition(unary.right);
+            code.pushInt(1);
+            code.insn(IXOR);
+        }
+        else if(expr instanceof Expr.Logical logical){
+            Code.Label end = code.label();
+            bool(logical.left);
+            code.insn(DUP);
+            code.jump(logical.operator.type == TokenType.OR ? IFNE : IFEQ, end);
+            code.insn(POP);
+            bool(logical.right);
+            code.mark(end);
+        }
+        else if(expr instanceof Expr.Binary binary){
+            comparison(binary);
+        }
+        else{
+            throw new IllegalArgumentException("Not a boolean expression " + expr);
+        }
+    }
+
+    private void comparison(Expr.Binary expr){
+        Token operator = expr.operator;
+        if(type(expr.left) == Type.NUMBER && type(expr.right) == Type.NUMBER){
+            //dcmpl and dcmpg differ only for NaN, pick the one that makes it false
+            switch (operator.type) {
+                case GREATER -> compare(expr, DCMPL, IFGT);
+                case GREATER_EQUAL -> compare(expr, DCMPL, IFGE);
+                case LESS -> compare(expr, DCMPG, IFLT);
+                case LESS_EQUAL -> compare(expr, DCMPG, IFLE);
+                case EQUAL_EQUAL -> compare(expr, LCMP, IFEQ);
+                case BANG_EQUAL -> compare(expr, LCMP, IFNE);
+                default -> throw new IllegalArgumentException("Not a comparison operator " + operator);
+            }
+            return;
+        }
+
+        value(expr.left);
+        value(expr.right);
+        if(operator.type == TokenType.EQUAL_EQUAL || operator.type == TokenType.BANG_EQUAL){
+            runtime("isEqual", "(" + OBJECT + OBJECT + ")Z");
+            if(operator.type == TokenType.BANG_EQUAL){
+                code.pushInt(1);
+                code.insn(IXOR);
+            }
+            return;
+        }
+
+        token(operator);
+        String descriptor = "(" + OBJECT + OBJECT + TOKEN + ")Z";
+        switch (operator.type) {
+            case GREATER -> runtime("greater", descriptor);
+            case GREATER_EQUAL -> runtime("greaterEqual", descriptor);
+            case LESS -> runtime("less", descriptor);
+            case LESS_EQUAL -> runtime("lessEqual", descriptor);
+            default -> throw new IllegalArgumentException("Not a comparison operator " + operator);
+        }
+    }
+
+    //Pushes 1 when the compare instruction's result passes the branch
+    private void compare(Expr.Binary expr, int compare, int branch){
+        number(expr.left);
+        if(compare == LCMP) code.invokeStatic("java/lang/Double", "doubleToLongBits", "(D)J");
+        number(expr.right);
+        if(compare == LCMP) code.invokeStatic("java/lang/Double", "doubleToLongBits", "(D)J");
+        code.insn(compare);
+
+        Code.Label isTrue = code.label();
+        Code.Label end = code.label();
+        code.jump(branch, isTrue);
+        code.pushInt(0);
+        code.jump(GOTO, end);
+        code.mark(isTrue);
+        code.pushInt(1);
+        code.mark(end);
+    }
+
+    //---------------------------------------------------------------------------------
+    // Expressions typed DYNAMIC, leave an Object on the stack, numbers boxed as Double
+
+    private void value(Expr expr){
+        Type type = type(expr);
+        if(type == Type.NUMBER){
+            number(expr);
+            code.invokeStatic("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;");
+            return;
+        }
+        if(type == Type.BOOLEAN){
+            bool(expr);
+            code.invokeStatic("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+            return;
+        }
+
+        if(expr instanceof Expr.Literal literal){
+            if(literal.value == null){
+                code.insn(ACONST_NULL);
+            }
+            else{
+                code.pushString((String) literal.value);
+            }
+        }
+        else if(expr instanceof Expr.Grouping grouping){
+            value(grouping.expression);
+        }
+        else if(expr instanceof Expr.Binary binary){
+            value(binary.left);
+            value(binary.right);
+            token(binary.operator);
+            runtime("add", "(" + OBJECT + OBJECT + TOKEN + ")" + OBJECT);
+        }
+        else if(expr instanceof Expr.Logical logical){
+            Code.Label end = code.label();
+            value(logical.left);
+            code.insn(DUP);
+            runtime("isTruthy", "(" + OBJECT + ")Z");
+            code.jump(logical.operator.type == TokenType.OR ? IFNE : IFEQ, end);
+            code.insn(POP);
+            value(logical.right);
+            code.mark(end);
+        }
+        else if(expr instanceof Expr.Variable variable){
+            readValue(variable);
+        }
+        else if(expr instanceof Expr.Assign assign){
+            assignValue(assign);
+        }
+        else{
+            throw new IllegalArgumentException("Unknown expression " + expr);
+        }
+    }
+
+    private void readValue(Expr.Variable expr){
+        Binding binding = analyzer.binding(expr);
+        if(!binding.global){
+            code.local(ALOAD, local(binding));
+            return;
+        }
+
+        globals(binding);
+        if(analyzer.isDefined(expr)){
+            runtime("load", "(" + GLOBALS + ")" + OBJECT);
+        }
+        else{
+            token(expr.name);
+            runtime("get", "(" + GLOBALS + TOKEN + ")" + OBJECT);
+        }
+    }
+
+    private void assignValue(Expr.Assign expr){
+        Binding binding = analyzer.binding(expr);
+        value(expr.value);
+        if(!binding.global){
+            code.insn(DUP);
+            code.local(ASTORE, local(binding));
+            return;
+        }
+
+        globals(binding);
+        if(analyzer.isDefined(expr)){
+            runtime("store", "(" + OBJECT + GLOBALS + ")" + OBJECT);
+        }
+        else{
+            token(expr.name);
+            runtime("assign", "(" + OBJECT + GLOBALS + TOKEN + ")" + OBJECT);
+        }
+    }
+
+    //Pushes the global arrays and the binding's slot
+    private void globals(Binding binding){
+        code.local(ALOAD, GLOBAL_VALUES);
+        code.local(ALOAD, GLOBAL_NUMBERS);
+        code.pushInt(binding.slot);
+    }
+}
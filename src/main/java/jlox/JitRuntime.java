@@ -0,0 +1,163 @@
+package jlox;
+
+import static jlox.Environment.NUMBER;
+import static jlox.Environment.UNDEFINED;
+
+//Static helpers called from JitCompiler's generated code, and from ClosureCompiler's
+//closures, for everything that isn't a plain double operation. Values here are boxed,
+//numbers are Doubles. Globals live in
+//the Interpreter's global Environment, where numbers are stored under the NUMBER tag.
+final class JitRuntime {
+    static final String NAME = "jlox/JitRuntime";
+
+    private JitRuntime(){
+    }
+
+    static void print(double value, OutputSink out){
+        out.println(value);
+    }
+
+    static void print(boolean value, OutputSink out){
+        out.println(value);
+    }
+
+    static void print(Object value, OutputSink out){
+        out.println(stringify(value));
+    }
+
+    //---------------------------------------------------------------------------------
+    // Operators
+
+    static double divide(double a, double b, Token operator){
+        if(b == 0) throw new RuntimeError(operator, "Cannot Divide by zero.");
+        return a / b;
+    }
+
+    static double negate(Object value, Token operator){
+        if(!(value instanceof Double)) throw new RuntimeError(operator, "Operand must be a number.");
+        return -(double) value;
+    }
+
+    static double subtract(Object a, Object b, Token operator){
+        checkNumberOperands(operator, a, b);
+        return (double) a - (double) b;
+    }
+
+    static double multiply(Object a, Object b, Token operator){
+        checkNumberOperands(operator, a, b);
+        return (double) a * (double) b;
+    }
+
+    static double divide(Object a, Object b, Token operator){
+        checkNumberOperands(operator, a, b);
+        return divide((double) a, (double) b, operator);
+    }
+
+    static boolean greater(Object a, Object b, Token operator){
+        checkNumberOperands(operator, a, b);
+        return (double) a > (double) b;
+    }
+
+    static boolean greaterEqual(Object a, Object b, Token operator){
+        checkNumberOperands(operator, a, b);
+        return (double) a >= (double) b;
+    }
+
+    static boolean less(Object a, Object b, Token operator){
+        checkNumberOperands(operator, a, b);
+        return (double) a < (double) b;
+    }
+
+    static boolean lessEqual(Object a, Object b, Token operator){
+        checkNumberOperands(operator, a, b);
+        return (double) a <= (double) b;
+    }
+
+    static Object add(Object a, Object b, Token operator){
+        if (a instanceof Double && b instanceof Double) {
+            return (double) a + (double) b;
+        }
+        if (a instanceof CharSequence && b instanceof CharSequence) {
+            return LoxString.concat((CharSequence) a, (CharSequence) b);
+        }
+
+        //Concatenation
+        if (a instanceof CharSequence || b instanceof CharSequence) {
+            if (a instanceof Double number) {
+                return LoxString.concat(number, (CharSequence) b);
+            } else if (b instanceof Double number) {
+                return LoxString.concat((CharSequence) a, number);
+            }
+        }
+        throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+    }
+
+    static boolean isEqual(Object a, Object b){
+        if(a == null && b == null) return true;
+        if(a == null) return false;
+        if(a instanceof CharSequence x && b instanceof CharSequence y) return LoxString.contentEquals(x, y);
+        return a.equals(b);
+    }
+
+    static boolean isTruthy(Object object){
+        if(object == null) return false;
+        if(object instanceof Boolean) return (boolean)object;
+        return true;
+    }
+
+    //---------------------------------------------------------------------------------
+    // Dynamically typed globals
+
+    static void define(Object value, Object[] values, double[] numbers, int slot){
+        store(value, values, numbers, slot);
+    }
+
+    //Read of a global whose declaration has already run
+    static Object load(Object[] values, double[] numbers, int slot){
+        Object value = values[slot];
+        if(value == NUMBER) return numbers[slot];
+        return value;
+    }
+
+    static Object get(Object[] values, double[] numbers, int slot, Token name){
+        if(values[slot] == UNDEFINED) throw undefined(name);
+        return load(values, numbers, slot);
+    }
+
+    static Object store(Object value, Object[] values, double[] numbers, int slot){
+        if(value instanceof Double number){
+            values[slot] = NUMBER;
+            numbers[slot] = number;
+        }
+        else{
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    static Object assign(Object value, Object[] values, double[] numbers, int slot, Token name){
+        if(values[slot] == UNDEFINED) throw undefined(name);
+        return store(value, values, numbers, slot);
+    }
+
+    //---------------------------------------------------------------------------------
+
+    static RuntimeError undefined(Token name){
+        return new RuntimeError(name, "Undefined Variable '" + name.lexeme + "'.");
+    }
+
+    private static void checkNumberOperands(Token operator, Object a, Object b){
+        if(a instanceof Double && b instanceof Double) return;
+        throw new RuntimeError(operator, "Operands must be numbers.");
+    }
+
+    private static String stringify(double number){
+        return NumberFormatter.format(number);
+    }
+
+    private static String stringify(Object object){
+        if(object == null) return "null";
+        if(object instanceof Double) return stringify((double) object);
+        return object.toString();
+    }
+}
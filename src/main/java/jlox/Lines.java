@@ -0,0 +1,27 @@
+package jlox;
+
+//Source line of a statement or expression, for the tools that report on nodes rather
+//than tokens: the profilers and Budget's errors.
+final class Lines {
+    private Lines(){
+    }
+
+    //Line of the node's own token, 0 when it has none
+    static int of(Object node){
+        return switch (node) {
+            case Expr.Assign assign -> assign.name.line;
+            case Expr.Binary binary -> binary.operator.line;
+            case Expr.Logical logical -> logical.operator.line;
+            case Expr.Unary unary -> unary.operator.line;
+            case Expr.Variable variable -> variable.name.line;
+            case Stmt.Var var -> var.name.line;
+            case Stmt.Print print -> print.keyword.line;
+            case Stmt.Expression expression -> of(expression.expression);
+            case Stmt.If stmt -> stmt.keyword.line;
+            case Stmt.While stmt -> stmt.keyword.line;
+            case Stmt.Block block -> block.brace.line;
+            case Expr.Grouping grouping -> of(grouping.expression);
+            default -> 0;
+        };
+    }
+}
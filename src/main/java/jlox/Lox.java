@@ -1,34 +1,176 @@
 package jlox;
 
+import jlox.vm.Chunk;
+import jlox.vm.VM;
+import jlox.vm.VMRuntimeError;
+
+import javax.management.JMException;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.io.Writer;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Lox {
-    private static final Interpreter interpreter = new Interpreter();
+    private enum Backend {
+        TREE, VM, CLOSURE, JIT;
+
+        static Backend parse(String name){
+            for(Backend backend: values()){
+                if(backend.name().equalsIgnoreCase(name)) return backend;
+            }
+            return null;
+        }
+    }
+
+    private static OutputSink out;
+    private static Interpreter interpreter;
+    private static VM vm;
+    private static ClosureCompiler closureCompiler;
+    private static JitCompiler jitCompiler;
+    private static Backend backend = Backend.TREE;
+    private static ProgramCache cache;
+    //Null unless --profile, "table" or "json"
+    private static String profile;
+    private static ProfilingInterpreter profiler;
+    //Null unless --sample, the file the collapsed stacks go to
+    private static Path sampleFile;
+    private static int sampleRate = 1000;
+    private static SamplingInterpreter sampler;
+    //Null unless --jmx
+    private static InterpreterStats stats;
+    private static boolean jmx;
+    //Limits on each run, -1 for a malformed one
+    private static long maxSteps = Budget.UNLIMITED;
+    private static long maxMillis = Budget.UNLIMITED;
+    private static long maxBytes = Budget.UNLIMITED;
     static boolean hadError = false;
     static boolean hadRuntimeError = false;
 
     public static void main(String[] args) throws IOException {
-        if(args.length > 1){
-            System.out.println("Usage: jlox [script]");
+        List<String> files = new ArrayList<>();
+        for(String arg: args){
+            if(arg.startsWith("--backend=")){
+                backend = Backend.parse(arg.substring("--backend=".length()));
+            }
+            else if(arg.equals("--profile") || arg.equals("--profile=table") || arg.equals("--profile=json")){
+                profile = arg.equals("--profile=json") ? "json" : "table";
+            }
+            else if(arg.startsWith("--sample=")){
+                sampleFile = Paths.get(arg.substring("--sample=".length()));
+            }
+            else if(arg.startsWith("--sample-rate=")){
+                try{
+                    sampleRate = Integer.parseInt(arg.substring("--sample-rate=".length()));
+                } catch (NumberFormatException error){
+                    sampleRate = 0;
+                }
+            }
+            else if(arg.startsWith("--max-steps=")){
+                maxSteps = limit(arg.substring("--max-steps=".length()));
+            }
+            else if(arg.startsWith("--max-millis=")){
+                maxMillis = limit(arg.substring("--max-millis=".length()));
+            }
+            else if(arg.startsWith("--max-bytes=")){
+                maxBytes = limit(arg.substring("--max-bytes=".length()));
+            }
+            else if(arg.equals("--jmx")){
+                jmx = true;
+            }
+            else if(arg.equals("--cache")){
+                cache = new ProgramCache(null);
+            }
+            else if(arg.startsWith("--cache=")){
+                cache = new ProgramCache(Paths.get(arg.substring("--cache=".length())));
+            }
+            else{
+                files.add(arg);
+            }
+        }
+
+        //Only the tree-walking interpreter can be profiled or metered, and only one way at a time
+        int instrumented = (profile != null ? 1 : 0) + (sampleFile != null ? 1 : 0) + (jmx ? 1 : 0);
+        boolean badProfile = instrumented > 0 && backend != Backend.TREE || instrumented > 1 || sampleRate <= 0;
+        //So are budgets
+        boolean badBudget = limited() && backend != Backend.TREE || maxSteps < 0 || maxMillis < 0 || maxBytes < 0;
+        if(backend == null || badProfile || badBudget || files.size() > 1 || files.size() == 1 && files.get(0).startsWith("--")){
+            System.out.println("Usage: jlox [--backend=tree|vm|closure|jit] [--cache[=directory]] [--profile[=table|json]]"
+                    + " [--sample=file [--sample-rate=hz]] [--jmx]"
+                    + " [--max-steps=n] [--max-millis=n] [--max-bytes=n] [script]");
             System.exit(64);
         }
-        else if(args.length == 1){
-            runFile(args[0]);
+        else if(files.size() == 1){
+            //Scripts only need their output by the time they finish
+            setUp(OutputSink.stdout(false));
+            runFile(files.get(0));
         }
         else{
+            setUp(OutputSink.stdout(true));
             repl();
         }
     }
 
+    //Every backend prints through the same sink
+    private static void setUp(OutputSink sink){
+        out = sink;
+        if(profile != null){
+            profiler = new ProfilingInterpreter(sink);
+            interpreter = profiler;
+        }
+        else if(sampleFile != null){
+            sampler = new SamplingInterpreter(sink);
+            sampler.start(sampleRate);
+            interpreter = sampler;
+        }
+        else if(jmx){
+            stats = new InterpreterStats();
+            try{
+                stats.register();
+            } catch (JMException error){
+                System.err.println("Could not register the interpreter MBean: " + error.getMessage());
+            }
+            interpreter = new MeteredInterpreter(sink, stats);
+        }
+        else{
+            interpreter = new Interpreter(sink);
+        }
+        if(limited()){
+            interpreter.budget(new Budget(maxSteps, maxMillis, maxBytes));
+        }
+        vm = new VM(sink);
+        closureCompiler = new ClosureCompiler(sink);
+        jitCompiler = new JitCompiler(interpreter);
+    }
+
+    private static boolean limited(){
+        return maxSteps != Budget.UNLIMITED || maxMillis != Budget.UNLIMITED || maxBytes != Budget.UNLIMITED;
+    }
+
+    private static long limit(String value){
+        try{
+            return Long.parseLong(value);
+        } catch (NumberFormatException error){
+            return -1;
+        }
+    }
+
     private static void runFile(String filePath) throws IOException{
-        byte[] bytes = Files.readAllBytes(Paths.get(filePath));
-        run(new String(bytes, Charset.defaultCharset()));
+        Path path = Paths.get(filePath);
+        if(cache == null){
+            //Scanned straight from the mapped file, the script never becomes a String
+            run(scan(path));
+        }
+        else{
+            runCached(path);
+        }
+        out.flush();
+        if(profiler != null) report(Files.readAllLines(path));
+        if(sampler != null) writeSamples();
         if(hadError) System.exit(65);
         if(hadRuntimeError) System.exit(70);
     }
@@ -38,24 +180,118 @@ public class Lox {
         BufferedReader reader = new BufferedReader(input);
 
         for(;;){
+            out.flush();
             System.out.print("> ");
             String line = reader.readLine();
             if(line == null) break;
             run(line);
             hadError = false;
         }
+        if(profiler != null) report(null);
+        if(sampler != null) writeSamples();
+    }
+
+    //On stderr, so the profile doesn't mix with the script's output
+    private static void report(List<String> source){
+        if(profile.equals("json")) profiler.printJson(System.err);
+        else profiler.printTable(System.err, source);
+    }
+
+    private static void writeSamples() throws IOException{
+        sampler.stop();
+        try(Writer writer = Files.newBufferedWriter(sampleFile)){
+            sampler.writeCollapsed(writer);
+        }
+        System.err.println("Wrote " + sampler.samples() + " samples to " + sampleFile);
+    }
+
+    //Scripts with syntax errors are never cached, so they are reported on every run
+    private static void runCached(Path path) throws IOException{
+        ProgramCache.Entry entry = cache.entry(path);
+        List<Stmt> statements = entry.load();
+        if(statements == null){
+            statements = compile(scan(path));
+            if(statements == null) return;
+            entry.store(statements);
+        }
+        execute(statements);
     }
 
     private static void run(String source){
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
-        Parser parser = new Parser(tokens);
-        List<Stmt> statements = parser.parse();
+        long start = System.nanoTime();
+        TokenBuffer tokens = new Scanner(source).scan();
+        if(stats != null) stats.scanNanos.add(System.nanoTime() - start);
+        run(tokens);
+    }
+
+    private static TokenBuffer scan(Path path) throws IOException{
+        long start = System.nanoTime();
+        TokenBuffer tokens = ByteScanner.scan(path, new SymbolTable(), ErrorReporter.LOX);
+        if(stats != null) stats.scanNanos.add(System.nanoTime() - start);
+        return tokens;
+    }
+
+    private static void run(TokenBuffer tokens){
+        List<Stmt> statements = compile(tokens);
+        if(statements != null) execute(statements);
+    }
+
+    //Parsed and optimized program, null if there was a syntax error
+    private static List<Stmt> compile(TokenBuffer tokens){
+        long start = System.nanoTime();
+        try{
+            //Large scripts are parsed a chunk per thread
+            List<Stmt> statements = new ParallelParser(tokens).parse();
+
+            // Stop if there was a syntax error.
+            if (hadError) return null;
+
+            return new Optimizer().optimize(statements);
+        } finally {
+            if(stats != null) stats.parseNanos.add(System.nanoTime() - start);
+        }
+    }
 
-        // Stop if there was a syntax error.
-        if (hadError) return;
+    private static void execute(List<Stmt> statements){
+        switch (backend) {
+            case VM -> runVm(vm, statements);
+            case CLOSURE -> runClosures(closureCompiler, statements);
+            case JIT -> runJit(jitCompiler, statements);
+            case TREE -> {
+                Resolver resolver = new Resolver(interpreter);
+                resolver.resolve(statements);
 
-        interpreter.interpret(statements);
+                interpreter.interpret(statements);
+            }
+        }
+    }
+
+    static void runVm(VM vm, List<Stmt> statements){
+        Chunk chunk = new BytecodeCompiler(vm).compile(statements);
+        if(chunk == null) return;
+        try{
+            vm.interpret(chunk);
+        } catch (VMRuntimeError error){
+            reportRuntimeError(error.line, error.getMessage());
+        }
+    }
+
+    static void runClosures(ClosureCompiler compiler, List<Stmt> statements){
+        Runnable program = compiler.compile(statements);
+        try{
+            program.run();
+        } catch (RuntimeError error){
+            runtimeError(error);
+        }
+    }
+
+    static void runJit(JitCompiler compiler, List<Stmt> statements){
+        Runnable program = compiler.compile(statements);
+        try{
+            program.run();
+        } catch (RuntimeError error){
+            runtimeError(error);
+        }
     }
 
     static void error(int line, String msg){
@@ -65,6 +301,7 @@ public class Lox {
     private static void report(int line, String where, String msg){
         System.err.println("[line " + line + "] Error" + where + ": " + msg);
         hadError = true;
+        if(stats != null) stats.parseErrors.increment();
     }
 
     static void error(Token token, String msg){
@@ -77,7 +314,12 @@ public class Lox {
     }
 
     static void runtimeError(RuntimeError error){
-        System.err.println("[line " + error.token.line + "]: " + error.getMessage());
+        reportRuntimeError(error.token.line, error.getMessage());
+    }
+
+    private static void reportRuntimeError(int line, String msg){
+        System.err.println("[line " + line + "]: " + msg);
         hadRuntimeError = true;
+        if(stats != null) stats.runtimeErrors.increment();
     }
 }
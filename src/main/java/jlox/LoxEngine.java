@@ -0,0 +1,155 @@
+package jlox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Embedding API that runs scripts without any of Lox's static state, so one JVM can run
+//them on as many threads as it likes:
+//
+//  LoxEngine engine = new LoxEngine();
+//  LoxEngine.ErrorCollector errors = new LoxEngine.ErrorCollector();
+//  LoxEngine.Program program = engine.compile(source, errors);
+//  //then on any thread, one context per thread or request
+//  LoxEngine.Context context = engine.newContext(out, errors);
+//  context.run(program);
+//
+//The engine and its programs are thread-safe. A context, with its globals, output and
+//errors, belongs to one thread at a time. Programs of one engine agree on where each
+//global lives, so a context can run several of them one after another, like REPL lines.
+public final class LoxEngine {
+    private final Map<String, Integer> globalSlots = new ConcurrentHashMap<>();
+    private final AtomicInteger globalCount = new AtomicInteger();
+
+    //Scans, parses, optimizes and resolves the source. Returns null when it has syntax
+    //errors, which go to errors.
+    public Program compile(String source, ErrorCollector errors){
+        ErrorReporter.Log log = new ErrorReporter.Log();
+        TokenBuffer tokens = new Scanner(source, new SymbolTable(), log).scan();
+        List<Stmt> statements = new ParallelParser(tokens, log, ForkJoinPool.commonPool(), ParallelParser.DEFAULT_CHUNK).parse();
+        if(!log.isEmpty()){
+            log.replay(errors);
+            return null;
+        }
+
+        statements = new Optimizer().optimize(statements);
+        new Resolver(this::globalSlot).resolve(statements);
+        return new Program(this, statements);
+    }
+
+    public Context newContext(OutputSink out, ErrorCollector errors){
+        return new Context(this, out, errors);
+    }
+
+    private int globalSlot(String name){
+        return globalSlots.computeIfAbsent(name, key -> globalCount.getAndIncrement());
+    }
+
+    //A compiled script. Nothing in it changes once compile returns, except that binary and
+    //unary nodes specialize themselves to the operand types they see. Every specialization
+    //checks its operands and falls back when they don't match, so whichever one a thread
+    //sees is correct and racing rewrites only cost speed.
+    public static final class Program {
+        //Its globals are slots of this engine's table, no other engine's
+        private final LoxEngine engine;
+        private final List<Stmt> statements;
+
+        private Program(LoxEngine engine, List<Stmt> statements){
+            this.engine = engine;
+            this.statements = List.copyOf(statements);
+        }
+    }
+
+    //Globals, output and errors of one thread or request
+    public static final class Context {
+        private final LoxEngine engine;
+        private final Interpreter interpreter;
+        private final OutputSink out;
+        private final ErrorCollector errors;
+
+        private Context(LoxEngine engine, OutputSink out, ErrorCollector errors){
+            this.engine = engine;
+            this.interpreter = new Interpreter(out, errors);
+            this.out = out;
+            this.errors = errors;
+        }
+
+        //Runs a program of this context's engine. Returns false if it stopped with a
+        //runtime error, which goes to the context's errors.
+        public boolean run(Program program){
+            if(program.engine != engine){
+                throw new IllegalArgumentException("Program was compiled by another engine");
+            }
+            return interpreter.interpret(program.statements);
+        }
+
+        //Compiles and runs the source in one go. Returns false on syntax or runtime errors.
+        public boolean run(String source){
+            Program program = engine.compile(source, errors);
+            return program != null && run(program);
+        }
+
+        //Limits every later run's loop iterations and block entries, milliseconds and
+        //approximate bytes, Long.MAX_VALUE for no limit. Going over one is a runtime error.
+        public void limit(long maxSteps, long maxMillis, long maxBytes){
+            interpreter.budget(new Budget(maxSteps, maxMillis, maxBytes));
+        }
+
+        public OutputSink out(){
+            return out;
+        }
+
+        public ErrorCollector errors(){
+            return errors;
+        }
+    }
+
+    //Errors of a compile or a context in the form Lox prints them, like
+    //"[line 1] Error at ';': Expect expression." or "[line 3]: Cannot Divide by zero."
+    public static final class ErrorCollector implements ErrorReporter {
+        private final List<String> messages = new ArrayList<>();
+        private boolean hadError;
+        private boolean hadRuntimeError;
+
+        @Override
+        public void error(int line, String msg){
+            messages.add("[line " + line + "] Error: " + msg);
+            hadError = true;
+        }
+
+        @Override
+        public void error(Token token, String msg){
+            String where = token.type == TokenType.EOF ? " at end" : " at '" + token.lexeme + "'";
+            messages.add("[line " + token.line + "] Error" + where + ": " + msg);
+            hadError = true;
+        }
+
+        @Override
+        public void runtimeError(RuntimeError error){
+            messages.add("[line " + error.token.line + "]: " + error.getMessage());
+            hadRuntimeError = true;
+        }
+
+        public List<String> messages(){
+            return Collections.unmodifiableList(messages);
+        }
+
+        public boolean hadError(){
+            return hadError;
+        }
+
+        public boolean hadRuntimeError(){
+            return hadRuntimeError;
+        }
+
+        public void clear(){
+            messages.clear();
+            hadError = false;
+            hadRuntimeError = false;
+        }
+    }
+}
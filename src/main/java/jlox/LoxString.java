@@ -0,0 +1,100 @@
+package jlox;
+
+//String value produced by concatenation at runtime. Literals stay java.lang.String,
+//so code handling strings accepts any CharSequence.
+//Values built by appending share one StringBuilder: each is a prefix of it, given by
+//its length, and the newest one may keep appending in place. 's = s + "x"' in a loop is
+//then amortized O(1) per step instead of copying s every time. The characters are
+//copied into a String only when something needs it, like printing or comparing.
+public final class LoxString implements CharSequence {
+    private final StringBuilder builder;
+    private final int length;
+    private String flat;
+
+    private LoxString(StringBuilder builder, int length){
+        this.builder = builder;
+        this.length = length;
+    }
+
+    public static CharSequence concat(CharSequence left, CharSequence right){
+        if(right.length() == 0) return left;
+
+        //Only the longest value over a builder may append, older ones are prefixes
+        //that would lose their end
+        if(left instanceof LoxString string && string.length == string.builder.length()){
+            append(string.builder, right);
+            return new LoxString(string.builder, string.builder.length());
+        }
+
+        StringBuilder builder = new StringBuilder(Math.max(16, 2 * (left.length() + right.length())));
+        append(builder, left);
+        append(builder, right);
+        return new LoxString(builder, builder.length());
+    }
+
+    //String + number, the digits are written straight into the builder
+    public static CharSequence concat(CharSequence left, double right){
+        if(left instanceof LoxString string && string.length == string.builder.length()){
+            NumberFormatter.appendTo(string.builder, right);
+            return new LoxString(string.builder, string.builder.length());
+        }
+
+        StringBuilder builder = new StringBuilder(Math.max(16, 2 * left.length() + 24));
+        append(builder, left);
+        NumberFormatter.appendTo(builder, right);
+        return new LoxString(builder, builder.length());
+    }
+
+    public static CharSequence concat(double left, CharSequence right){
+        StringBuilder builder = new StringBuilder(Math.max(16, 2 * right.length() + 24));
+        NumberFormatter.appendTo(builder, left);
+        append(builder, right);
+        return new LoxString(builder, builder.length());
+    }
+
+    private static void append(StringBuilder builder, CharSequence value){
+        if(value instanceof LoxString string){
+            builder.append(string.builder, 0, string.length);
+        }
+        else{
+            builder.append(value);
+        }
+    }
+
+    //Lox '==' on two strings
+    public static boolean contentEquals(CharSequence a, CharSequence b){
+        return a.length() == b.length() && a.toString().equals(b.toString());
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if(index < 0 || index >= length) throw new IndexOutOfBoundsException(index);
+        return builder.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        if(flat == null) flat = builder.substring(0, length);
+        return flat;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LoxString string && contentEquals(this, string);
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
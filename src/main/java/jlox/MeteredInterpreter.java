@@ -0,0 +1,70 @@
+package jlox;
+
+import java.util.List;
+
+//Interpreter for --jmx that counts what it runs into an InterpreterStats. Like the
+//profilers it is a subclass, so the plain Interpreter counts nothing.
+//
+//Statements and expressions are counted in plain fields and added to the shared adders
+//every FLUSH statements and at the end of each run, so a hot loop pays for an increment
+//rather than an atomic add per node. Monitoring sees them at most FLUSH statements late.
+final class MeteredInterpreter extends Interpreter {
+    private static final int FLUSH = 1024;
+
+    private final InterpreterStats stats;
+    private int statements;
+    private long expressions;
+    private int depth;
+    private int maxDepth;
+
+    MeteredInterpreter(OutputSink out, InterpreterStats stats){
+        super(out);
+        this.stats = stats;
+    }
+
+    @Override
+    boolean interpret(List<Stmt> statements){
+        long start = System.nanoTime();
+        try{
+            return super.interpret(statements);
+        } finally {
+            flush();
+            stats.executeNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    Object evaluate(Expr expr){
+        expressions++;
+        return super.evaluate(expr);
+    }
+
+    @Override
+    void execute(Stmt stmt){
+        if(++statements == FLUSH) flush();
+        super.execute(stmt);
+    }
+
+    //Only blocks that declare variables get here, the others share their parent's scope
+    @Override
+    void executeBlock(List<Stmt> statements, Environment environment){
+        stats.environments.increment();
+        stats.scopeDepth.setRelease(++depth);
+        if(depth > maxDepth){
+            maxDepth = depth;
+            stats.maxScopeDepth.accumulate(depth);
+        }
+        try{
+            super.executeBlock(statements, environment);
+        } finally {
+            stats.scopeDepth.setRelease(--depth);
+        }
+    }
+
+    private void flush(){
+        stats.statements.add(statements);
+        stats.expressions.add(expressions);
+        statements = 0;
+        expressions = 0;
+    }
+}
@@ -0,0 +1,54 @@
+package jlox;
+
+//Formats Lox numbers the way stringify always has: Double.toString without a trailing
+//".0", so 3.0 is "3" and 2.5 is "2.5". Integral values below 1e7, where Double.toString
+//would use plain notation, are written as long digits and never go through a "3.0"
+//string. Anything else is the JDK's shortest round-trip representation, which never
+//ends in ".0" for those values.
+public final class NumberFormatter {
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+    //Double.toString switches to E notation from here on
+    private static final double PLAIN_LIMIT = 1e7;
+
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final String[] CACHE = new String[CACHE_HIGH - CACHE_LOW];
+
+    static {
+        for(int i = CACHE_LOW; i < CACHE_HIGH; i++){
+            CACHE[i - CACHE_LOW] = Integer.toString(i);
+        }
+    }
+
+    private NumberFormatter(){
+    }
+
+    public static String format(double number){
+        if(isPlainIntegral(number)){
+            long value = (long) number;
+            if(value >= CACHE_LOW && value < CACHE_HIGH) return CACHE[(int) value - CACHE_LOW];
+            return Long.toString(value);
+        }
+        if(Double.doubleToRawLongBits(number) == NEGATIVE_ZERO) return "-0";
+        return Double.toString(number);
+    }
+
+    //Writes the digits straight into the caller's buffer
+    public static void appendTo(StringBuilder builder, double number){
+        if(isPlainIntegral(number)){
+            builder.append((long) number);
+        }
+        else if(Double.doubleToRawLongBits(number) == NEGATIVE_ZERO){
+            builder.append("-0");
+        }
+        else{
+            builder.append(number);
+        }
+    }
+
+    //-0.0 is excluded, (long) would drop its sign
+    private static boolean isPlainIntegral(double number){
+        return number > -PLAIN_LIMIT && number < PLAIN_LIMIT && number == (long) number
+                && Double.doubleToRawLongBits(number) != NEGATIVE_ZERO;
+    }
+}
@@ -0,0 +1,205 @@
+package jlox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Rewrites the parsed AST before any backend sees it: groupings are dropped, operators
+//on literals are folded into a literal and if/while statements whose condition is a
+//literal lose their dead branch. Nodes are rebuilt only when a child changed.
+//Anything that would fail at runtime, like dividing by zero or "a" - 1, is left
+//in place so the error is still raised, at the same line, when it runs.
+class Optimizer implements Expr.Visitor<Expr>, Stmt.Visitor<Stmt> {
+    //Result of fold() for operands it can't combine at compile time
+    private static final Object NOT_CONSTANT = new Object();
+
+    List<Stmt> optimize(List<Stmt> statements){
+        List<Stmt> optimized = new ArrayList<>(statements.size());
+        for(Stmt statement: statements){
+            Stmt result = statement.accept(this);
+            //null is a statement that would never run
+            if(result != null) optimized.add(result);
+        }
+        return optimized;
+    }
+
+    private Expr optimize(Expr expr){
+        return expr.accept(this);
+    }
+
+    //True when optimizing kept every statement as it was
+    private static boolean same(List<Stmt> optimized, List<Stmt> original){
+        if(optimized.size() != original.size()) return false;
+        for(int i = 0; i < optimized.size(); i++){
+            if(optimized.get(i) != original.get(i)) return false;
+        }
+        return true;
+    }
+
+    //Branches and loop bodies can't be removed, only emptied. Only ifs and whiles
+    //vanish, the empty block keeps their keyword for its line.
+    private Stmt branch(Stmt stmt){
+        Stmt result = stmt.accept(this);
+        if(result != null) return result;
+        Token keyword = stmt instanceof Stmt.If dead ? dead.keyword : ((Stmt.While) stmt).keyword;
+        return new Stmt.Block(keyword, new ArrayList<>());
+    }
+
+    //---------------------------------------------------------------------------------
+    // Statements
+
+    @Override
+    public Stmt visitBlockStmt(Stmt.Block stmt) {
+        List<Stmt> statements = optimize(stmt.statements);
+        return same(statements, stmt.statements) ? stmt : new Stmt.Block(stmt.brace, statements);
+    }
+
+    @Override
+    public Stmt visitExpressionStmt(Stmt.Expression stmt) {
+        Expr expression = optimize(stmt.expression);
+        return expression == stmt.expression ? stmt : new Stmt.Expression(expression);
+    }
+
+    @Override
+    public Stmt visitIfStmt(Stmt.If stmt) {
+        Expr condition = optimize(stmt.condition);
+        if(condition instanceof Expr.Literal literal){
+            if(isTruthy(literal.value)) return branch(stmt.thenBranch);
+            return stmt.elseBranch == null ? null : branch(stmt.elseBranch);
+        }
+
+        Stmt thenBranch = branch(stmt.thenBranch);
+        Stmt elseBranch = stmt.elseBranch == null ? null : branch(stmt.elseBranch);
+        if(condition == stmt.condition && thenBranch == stmt.thenBranch && elseBranch == stmt.elseBranch) return stmt;
+        return new Stmt.If(stmt.keyword, condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public Stmt visitPrintStmt(Stmt.Print stmt) {
+        Expr expression = optimize(stmt.expression);
+        return expression == stmt.expression ? stmt : new Stmt.Print(stmt.keyword, expression);
+    }
+
+    @Override
+    public Stmt visitVarStmt(Stmt.Var stmt) {
+        if(stmt.initializer == null) return stmt;
+        Expr initializer = optimize(stmt.initializer);
+        return initializer == stmt.initializer ? stmt : new Stmt.Var(stmt.name, initializer);
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        Expr condition = optimize(stmt.condition);
+        if(condition instanceof Expr.Literal literal && !isTruthy(literal.value)) return null;
+        Expr increment = stmt.increment == null ? null : optimize(stmt.increment);
+        Stmt body = branch(stmt.body);
+        if(condition == stmt.condition && body == stmt.body && increment == stmt.increment) return stmt;
+        return new Stmt.While(stmt.keyword, condition, body, increment);
+    }
+
+    //---------------------------------------------------------------------------------
+    // Expressions
+
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        Expr value = optimize(expr.value);
+        return value == expr.value ? expr : new Expr.Assign(expr.name, value);
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr left = optimize(expr.left);
+        Expr right = optimize(expr.right);
+
+        if(left instanceof Expr.Literal a && right instanceof Expr.Literal b){
+            Object value = fold(expr.operator.type, a.value, b.value);
+            if(value != NOT_CONSTANT) return new Expr.Literal(value);
+        }
+        if(left == expr.left && right == expr.right) return expr;
+        return new Expr.Binary(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        //Parentheses only matter to the parser
+        return optimize(expr.expression);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Expr.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogicalExpr(Expr.Logical expr) {
+        Expr left = optimize(expr.left);
+        Expr right = optimize(expr.right);
+
+        //A literal left side decides which operand is the result
+        if(left instanceof Expr.Literal literal){
+            boolean truthy = isTruthy(literal.value);
+            if(expr.operator.type == TokenType.OR) return truthy ? left : right;
+            return truthy ? right : left;
+        }
+        if(left == expr.left && right == expr.right) return expr;
+        return new Expr.Logical(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr right = optimize(expr.right);
+
+        if(right instanceof Expr.Literal literal){
+            if(expr.operator.type == TokenType.BANG) return new Expr.Literal(!isTruthy(literal.value));
+            if(literal.value instanceof Double number) return new Expr.Literal(-number);
+        }
+        if(right == expr.right) return expr;
+        return new Expr.Unary(expr.operator, right);
+    }
+
+    @Override
+    public Expr visitVariableExpr(Expr.Variable expr) {
+        return expr;
+    }
+
+    //---------------------------------------------------------------------------------
+    // Folding, same results as Interpreter.binary for the operands it accepts
+
+    private static Object fold(TokenType operator, Object a, Object b){
+        if(operator == TokenType.EQUAL_EQUAL) return isEqual(a, b);
+        if(operator == TokenType.BANG_EQUAL) return !isEqual(a, b);
+
+        if(a instanceof Double x && b instanceof Double y){
+            return switch (operator) {
+                case PLUS -> x + y;
+                case MINUS -> x - y;
+                case STAR -> x * y;
+                //Division by zero stays a runtime error
+                case SLASH -> y == 0 ? NOT_CONSTANT : x / y;
+                case GREATER -> x > y;
+                case GREATER_EQUAL -> x >= y;
+                case LESS -> x < y;
+                case LESS_EQUAL -> x <= y;
+                default -> NOT_CONSTANT;
+            };
+        }
+
+        if(operator == TokenType.PLUS){
+            if(a instanceof String x && b instanceof String y) return x + y;
+            if(a instanceof String x && b instanceof Double y) return x + NumberFormatter.format(y);
+            if(a instanceof Double x && b instanceof String y) return NumberFormatter.format(x) + y;
+        }
+        return NOT_CONSTANT;
+    }
+
+    private static boolean isEqual(Object a, Object b){
+        if(a == null && b == null) return true;
+        if(a == null) return false;
+        return a.equals(b);
+    }
+
+    private static boolean isTruthy(Object object){
+        if(object == null) return false;
+        if(object instanceof Boolean) return (boolean)object;
+        return true;
+    }
+}
@@ -0,0 +1,99 @@
+package jlox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+//Where 'print' output goes. Lines are encoded as UTF-8 into a direct buffer that is
+//written to the channel when it fills up, when flush() is called or, in line mode,
+//after every line. Backends flush at the end of each run and before reporting a
+//runtime error, Lox additionally flushes before every REPL prompt.
+public final class OutputSink {
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    //Longest formatted double is 24 characters, this leaves room for the separator too
+    private static final int NUMBER_RESERVE = 32;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean flushEachLine;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    //Reused to format numbers without allocating
+    private final StringBuilder digits = new StringBuilder(NUMBER_RESERVE);
+
+    public OutputSink(WritableByteChannel channel, int capacity, boolean flushEachLine){
+        if(capacity < NUMBER_RESERVE) throw new IllegalArgumentException("Capacity too small: " + capacity);
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.flushEachLine = flushEachLine;
+    }
+
+    //Writes to whatever System.out is when this is called
+    public static OutputSink stdout(boolean flushEachLine){
+        return new OutputSink(Channels.newChannel(System.out), DEFAULT_CAPACITY, flushEachLine);
+    }
+
+    public void println(CharSequence text){
+        encoder.reset();
+        CharBuffer chars = text instanceof String string ? CharBuffer.wrap(string) : CharBuffer.wrap(text);
+        for(;;){
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if(!result.isOverflow()) break;
+            drain();
+        }
+        while(encoder.flush(buffer).isOverflow()){
+            drain();
+        }
+        endLine();
+    }
+
+    public void println(double number){
+        digits.setLength(0);
+        NumberFormatter.appendTo(digits, number);
+        printAscii(digits);
+    }
+
+    public void println(boolean value){
+        printAscii(value ? "true" : "false");
+    }
+
+    public void flush(){
+        drain();
+    }
+
+    private void printAscii(CharSequence text){
+        if(buffer.remaining() < text.length() + LINE_SEPARATOR.length) drain();
+        for(int i = 0; i < text.length(); i++){
+            buffer.put((byte) text.charAt(i));
+        }
+        endLine();
+    }
+
+    private void endLine(){
+        if(buffer.remaining() < LINE_SEPARATOR.length) drain();
+        buffer.put(LINE_SEPARATOR);
+        if(flushEachLine || !buffer.hasRemaining()) drain();
+    }
+
+    private void drain(){
+        buffer.flip();
+        try{
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        } catch (IOException error){
+            throw new UncheckedIOException(error);
+        } finally {
+            buffer.clear();
+        }
+    }
+}
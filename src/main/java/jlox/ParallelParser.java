@@ -0,0 +1,121 @@
+package jlox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import static jlox.TokenType.*;
+
+//Front end for large scripts. The token stream is cut into chunks at top level statement
+//boundaries, a ';' or '}' outside any braces or parentheses that no 'else' follows, and
+//the chunks are parsed concurrently. No declaration spans a boundary, so each chunk parses
+//exactly as it would in the middle of the whole program. Statements and syntax errors are
+//put back together in source order, errors are reported once every chunk is done. After a
+//syntax error the parser recovers at the next boundary at the latest, where parsing the
+//whole program at once may skip a little further.
+final class ParallelParser {
+    //Smaller scripts aren't worth handing to other threads
+    static final int DEFAULT_CHUNK = 1 << 16;
+
+    private final TokenBuffer tokens;
+    private final ErrorReporter errors;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    ParallelParser(TokenBuffer tokens){
+        this(tokens, ErrorReporter.LOX, ForkJoinPool.commonPool(), DEFAULT_CHUNK);
+    }
+
+    ParallelParser(TokenBuffer tokens, ErrorReporter errors, ForkJoinPool pool, int chunkSize){
+        if(chunkSize < 1) throw new IllegalArgumentException("Chunk too small: " + chunkSize);
+        this.tokens = tokens;
+        this.errors = errors;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    List<Stmt> parse(){
+        int[] bounds = split();
+        if(bounds.length == 2) return new Parser(tokens, errors).parse();
+
+        List<Chunk> chunks = new ArrayList<>(bounds.length - 1);
+        for(int i = 0; i + 1 < bounds.length; i++){
+            chunks.add(new Chunk(bounds[i], bounds[i + 1]));
+        }
+        pool.invoke(new Batch(chunks));
+
+        List<Stmt> statements = new ArrayList<>();
+        for(Chunk chunk: chunks){
+            statements.addAll(chunk.join());
+            chunk.log.replay(errors);
+        }
+        return statements;
+    }
+
+    //Token indexes where chunks start, ending with the EOF token's
+    int[] split(){
+        int eof = tokens.size() - 1;
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+
+        int braces = 0;
+        int parens = 0;
+        int last = 0;
+        for(int i = 0; i < eof; i++){
+            switch (tokens.type(i)) {
+                case LEFT_BRACE -> braces++;
+                case RIGHT_BRACE -> braces = Math.max(0, braces - 1);
+                case LEFT_PAREN -> parens++;
+                case RIGHT_PAREN -> parens = Math.max(0, parens - 1);
+                default -> {}
+            }
+            if(i + 1 - last < chunkSize || braces != 0 || parens != 0) continue;
+
+            TokenType type = tokens.type(i);
+            if((type == SEMICOLON || type == RIGHT_BRACE) && tokens.type(i + 1) != ELSE && i + 1 < eof){
+                bounds.add(i + 1);
+                last = i + 1;
+            }
+        }
+
+        bounds.add(eof);
+        int[] result = new int[bounds.size()];
+        for(int i = 0; i < result.length; i++){
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    //Parses its tokens into its own log, so nothing is reported out of order
+    private final class Chunk extends RecursiveTask<List<Stmt>> {
+        private final int from;
+        private final int end;
+        private final ErrorReporter.Log log = new ErrorReporter.Log();
+
+        Chunk(int from, int end){
+            this.from = from;
+            this.end = end;
+        }
+
+        @Override
+        protected List<Stmt> compute() {
+            return new Parser(tokens, from, end, log).parse();
+        }
+    }
+
+    private static final class Batch extends RecursiveTask<Void> {
+        private final List<Chunk> chunks;
+
+        Batch(List<Chunk> chunks){
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected Void compute() {
+            ForkJoinTask.invokeAll(chunks);
+            return null;
+        }
+    }
+}
@@ -11,11 +11,34 @@ public class Parser {
 
     }
 
-    private final List<Token> tokens;
-    private int current = 0;
+    //Read through an index cursor, a Token is only built for tokens that end up
+    //in the tree or in an error message
+    private final TokenBuffer tokens;
+    private final ErrorReporter errors;
+    //Index read as EOF, the buffer's own EOF unless parsing a range of it
+    private final int end;
+    private int current;
+    //Furthest token any rule has looked at, including one token of lookahead
+    private int furthest = -1;
+
+    Parser(TokenBuffer tokens){
+        this(tokens, ErrorReporter.LOX);
+    }
 
-    Parser(List<Token> tokens){
+    Parser(TokenBuffer tokens, ErrorReporter errors){
+        this(tokens, 0, tokens.size() - 1, errors);
+    }
+
+    //Parses tokens from up to end as if the program stopped there
+    Parser(TokenBuffer tokens, int from, int end, ErrorReporter errors){
         this.tokens = tokens;
+        this.errors = errors;
+        this.end = end;
+        this.current = from;
+    }
+
+    Parser(List<Token> tokens){
+        this(TokenBuffer.of(tokens));
     }
 
     List<Stmt> parse(){
@@ -27,6 +50,25 @@ public class Parser {
         return statements;
     }
 
+    //One top level declaration at a time, for front ends that need to know where each
+    //one starts. Null when it had a syntax error, like the entries parse() returns.
+    Stmt parseDeclaration(){
+        return declaration();
+    }
+
+    //Doesn't count as looking at the next token
+    boolean done(){
+        return current >= end;
+    }
+
+    int position(){
+        return current;
+    }
+
+    int furthest(){
+        return furthest;
+    }
+
     private Stmt declaration(){
         try{
             if(match(VAR)) return varDeclaration();
@@ -39,7 +81,8 @@ public class Parser {
 
     //varDecl -> "var" IDENTIFIER ( "=" expression )? ";" ;
     private Stmt varDeclaration(){
-        Token name = consume(IDENTIFIER, "Expect variable name.");
+        consume(IDENTIFIER, "Expect variable name.");
+        Token name = previous();
 
         Expr initializer = null;
         if(match(EQUAL)){
@@ -56,12 +99,13 @@ public class Parser {
         if(match(IF)) return ifStatement();
         if(match(PRINT)) return printStatement();
         if(match(WHILE)) return whileStatement();
-        if (match(LEFT_BRACE)) return new Stmt.Block(block());
+        if (match(LEFT_BRACE)) return new Stmt.Block(previous(), block());
         return expressionStatement();
     }
 
     //if -> "if" '(' expression ')' (else)?
     private Stmt ifStatement(){
+        Token keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'if'.");
         Expr condition = expression();
         consume(RIGHT_PAREN, "Expect ')' after if condition.");
@@ -72,19 +116,21 @@ public class Parser {
             elseBranch = statement();
         }
 
-        return new Stmt.If(condition, thenBranch, elseBranch);
+        return new Stmt.If(keyword, condition, thenBranch, elseBranch);
     }
 
     private Stmt whileStatement(){
+        Token keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'while'.");
         Expr condition = expression();
         consume(RIGHT_PAREN, "Expect ')' after condition.");
         Stmt body = statement();
 
-        return new Stmt.While(condition, body);
+        return new Stmt.While(keyword, condition, body, null);
     }
 
     private Stmt forStatement(){
+        Token keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'for'.");
 
         Stmt initializer;
@@ -110,16 +156,14 @@ public class Parser {
         }
         consume(RIGHT_PAREN, "Expect ')' after for clauses.");
 
+        //The increment stays on the loop rather than in a block around the body,
+        //so an iteration doesn't need a scope of its own
         Stmt body = statement();
-        if(increment != null){
-            body = new Stmt.Block(Arrays.asList(body, new Stmt.Expression(increment)));
-        }
-
         if (condition == null) condition = new Expr.Literal(true);
-        body = new Stmt.While(condition, body);
+        body = new Stmt.While(keyword, condition, body, increment);
 
         if (initializer != null) {
-            body = new Stmt.Block(Arrays.asList(initializer, body));
+            body = new Stmt.Block(keyword, Arrays.asList(initializer, body));
         }
 
         return body;
@@ -127,9 +171,10 @@ public class Parser {
 
     // printStatement -> print expression ;
     private Stmt printStatement(){
+        Token keyword = previous();
         Expr value = expression();
         consume(SEMICOLON, "Expect ';' after value.");
-        return new Stmt.Print(value);
+        return new Stmt.Print(keyword, value);
     }
 
     private Stmt expressionStatement(){
@@ -149,201 +194,214 @@ public class Parser {
         return statements;
     }
 
-    //expression -> equality
-    private Expr expression(){
-        return assignment();
+    //Expressions are parsed by precedence climbing over two tables indexed by token type:
+    //what a token starts when it begins an expression, and what it does and how tightly
+    //it binds after one. Same trees as the grammar below, one call per operand.
+    //
+    //expression -> assignment
+    //assignment -> IDENTIFIER '=' assignment | or
+    //or         -> and ( "or" and )*
+    //and        -> equality ( "and" equality )*
+    //equality   -> comparison (( != | == ) comparison)*
+    //comparison -> term (( > | >= | < | <= ) term)*
+    //term       -> factor (( - | + ) factor)*
+    //factor     -> unary (( / | * ) unary)*
+    //unary      -> ( ! | - ) unary | primary
+    //primary    -> NUMBER | STRING | "true" | "false" | "null" | "(" expression ")" | IDENTIFIER
+    private static final int NONE = 0;
+    private static final int ASSIGNMENT = 1;
+    private static final int OR_PRECEDENCE = 2;
+    private static final int AND_PRECEDENCE = 3;
+    private static final int EQUALITY = 4;
+    private static final int COMPARISON = 5;
+    private static final int TERM = 6;
+    private static final int FACTOR = 7;
+    private static final int UNARY = 8;
+
+    private interface PrefixRule {
+        Expr parse(Parser parser);
     }
 
-    //assignment -> IDENTIFIER '=' expression | equality
-    private Expr assignment(){
-        Expr expr = or();
-
-        if(match(EQUAL)){
-            Token equals = previous();
-            Expr value = assignment();
-
-            if(expr instanceof Expr.Variable){
-                Token name = ((Expr.Variable)expr).name;
-                return new Expr.Assign(name, value);
-            }
-
-            error(equals, "Invalid assignment target.");
-        }
-
-        return expr;
+    private interface InfixRule {
+        Expr parse(Parser parser, Expr left, int precedence);
     }
 
-    private Expr or(){
-        Expr expr = and();
-
-        while(match(OR)){
-            Token operator = previous();
-            Expr right = and();
-            expr = new Expr.Logical(expr, operator, right);
-        }
-
-        return expr;
+    private static final PrefixRule[] PREFIX = new PrefixRule[TokenType.values().length];
+    private static final InfixRule[] INFIX = new InfixRule[TokenType.values().length];
+    private static final int[] PRECEDENCE = new int[TokenType.values().length];
+
+    static {
+        prefix(Parser::unary, BANG, MINUS);
+        prefix(Parser::literal, FALSE, TRUE, NULL, NUMBER, STRING);
+        prefix(Parser::grouping, LEFT_PAREN);
+        prefix(Parser::variable, IDENTIFIER);
+
+        infix(Parser::assignment, ASSIGNMENT, EQUAL);
+        infix(Parser::logical, OR_PRECEDENCE, OR);
+        infix(Parser::logical, AND_PRECEDENCE, AND);
+        infix(Parser::binary, EQUALITY, BANG_EQUAL, EQUAL_EQUAL);
+        infix(Parser::binary, COMPARISON, GREATER, GREATER_EQUAL, LESS, LESS_EQUAL);
+        infix(Parser::binary, TERM, MINUS, PLUS);
+        infix(Parser::binary, FACTOR, SLASH, STAR);
     }
 
-    private Expr and(){
-        Expr expr = equality();
-
-        while(match(AND)){
-            Token operator = previous();
-            Expr right = equality();
-            expr = new Expr.Logical(expr, operator, right);
+    private static void prefix(PrefixRule rule, TokenType... types){
+        for(TokenType type: types){
+            PREFIX[type.ordinal()] = rule;
         }
-
-        return expr;
     }
 
-    //equality -> comparison ((!= | ==) comparison)*;
-    private Expr equality(){
-        Expr expr = comparison();
-
-        while(match(BANG_EQUAL, EQUAL_EQUAL)){
-            Token operator = previous(); //since match consumes the token
-            Expr right = comparison();
-            expr = new Expr.Binary(expr, operator, right);
+    private static void infix(InfixRule rule, int precedence, TokenType... types){
+        for(TokenType type: types){
+            INFIX[type.ordinal()] = rule;
+            PRECEDENCE[type.ordinal()] = precedence;
         }
-
-        return expr;
     }
 
-    //comparison -> term (( > | >= | < | <= ) term)*;
-    private Expr comparison(){
-        Expr expr = term();
-
-        while(match(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)){
-            Token operator = previous();
-            Expr right = term();
-            expr = new Expr.Binary(expr, operator, right);
-        }
-
-        return expr;
+    private Expr expression(){
+        return expression(ASSIGNMENT);
     }
 
-    //term -> factor (( - | + ) factor)*;
-    private Expr term(){
-        Expr expr = factor();
-
-        while(match(MINUS, PLUS)){
-            Token operator = previous();
-            Expr right = factor();
-            expr = new Expr.Binary(expr, operator, right);
+    //Parses an expression whose operators all bind at least as tightly as precedence
+    private Expr expression(int precedence){
+        PrefixRule prefix = PREFIX[typeAt(current).ordinal()];
+        if(prefix == null) throw error(peek(), "Expect expression.");
+        Expr expr = prefix.parse(this);
+
+        for(;;){
+            int ordinal = typeAt(current).ordinal();
+            int binding = PRECEDENCE[ordinal];
+            if(binding == NONE || binding < precedence) return expr;
+            current++;
+            expr = INFIX[ordinal].parse(this, expr, binding);
         }
-
-        return expr;
     }
 
-    //factor -> unary (( / | *) unary)*;
-    private Expr factor(){
-        Expr expr = unary();
-
-        while(match(SLASH, STAR)){
-            Token operator = previous();
-            Expr right = unary();
-            expr = new Expr.Binary(expr, operator, right);
-        }
+    private Expr unary(){
+        Token operator = advance();
+        Expr right = expression(UNARY);
+        return new Expr.Unary(operator, right);
+    }
 
-        return expr;
+    private Expr literal(){
+        TokenType type = typeAt(current);
+        current++;
+        return switch (type) {
+            case FALSE -> new Expr.Literal(false);
+            case TRUE -> new Expr.Literal(true);
+            case NULL -> new Expr.Literal(null);
+            default -> new Expr.Literal(tokens.literal(current - 1));
+        };
     }
 
-    //unary -> ( ! | - ) unary | primary;
-    private Expr unary(){
-        if(match(BANG, MINUS)){
-            Token operator = previous();
-            Expr right = unary();
-            return new Expr.Unary(operator, right);
-        }
+    private Expr grouping(){
+        current++;
+        Expr expr = expression();
+        consume(RIGHT_PAREN, "Expect ')' after expression.");
+        return new Expr.Grouping(expr);
+    }
 
-        return primary();
+    private Expr variable(){
+        return new Expr.Variable(advance());
     }
 
-    //primary -> NUMBER | STRING | "true" | "false" | "null" | "(" expression ")";
-    private Expr primary(){
-        if(match(FALSE)) return new Expr.Literal(false);
-        if(match(TRUE)) return new Expr.Literal(true);
-        if(match(NULL)) return new Expr.Literal(null);
+    //Right associative, the value may itself be an assignment
+    private Expr assignment(Expr target, int precedence){
+        Token equals = previous();
+        Expr value = expression(precedence);
 
-        if(match(NUMBER, STRING)){
-            return new Expr.Literal(previous().literal);
+        if(target instanceof Expr.Variable){
+            Token name = ((Expr.Variable)target).name;
+            return new Expr.Assign(name, value);
         }
 
-        if(match(LEFT_PAREN)){
-            Expr expr = expression();
-            consume(RIGHT_PAREN, "Expect ')' after expression.");
-            return new Expr.Grouping(expr);
-        }
+        error(equals, "Invalid assignment target.");
+        return target;
+    }
 
-        if(match(IDENTIFIER)){
-            return new Expr.Variable(previous());
-        }
+    private Expr logical(Expr left, int precedence){
+        Token operator = previous();
+        Expr right = expression(precedence + 1);
+        return new Expr.Logical(left, operator, right);
+    }
 
-        throw error(peek(), "Expect expression.");
+    private Expr binary(Expr left, int precedence){
+        Token operator = previous();
+        Expr right = expression(precedence + 1);
+        return new Expr.Binary(left, operator, right);
     }
 
-    //Matches and consumes tokens
-    private boolean match(TokenType... types){
-        for(TokenType type: types){
-            if(check(type)) {
-                advance();
-                return true;
-            }
+    //Matches and consumes a token
+    private boolean match(TokenType type){
+        if(check(type)) {
+            current++;
+            return true;
         }
         return false;
     }
 
+    //consumes token
+    private Token advance(){
+        current++;
+        return previous();
+    }
+
     private boolean check(TokenType type){
         if(isAtEnd()) return false;
-        return peek().type == type;
+        return typeAt(current) == type;
     }
 
-    //consumes token
-    private Token advance(){
-        if(!isAtEnd()) current++;
-        return previous();
+    private TokenType typeAt(int index){
+        if(index > furthest) furthest = index;
+        return index < end ? tokens.type(index) : EOF;
     }
 
     private boolean isAtEnd(){
-        return peek().type == EOF;
+        return typeAt(current) == EOF;
     }
 
     //current token yet to be consumed
     private Token peek(){
-        return tokens.get(current);
+        if(typeAt(current) == EOF && current < tokens.size() - 1){
+            //The end of a range has no EOF token of its own
+            return new Token(EOF, "", null, tokens.line(Math.max(0, current - 1)));
+        }
+        return tokens.token(current);
     }
 
     //returns most recently consumed token
     private Token previous(){
-        return tokens.get(current - 1);
+        return tokens.token(current - 1);
     }
 
 
-    private Token consume(TokenType type, String msg){
-        if(check(type)) return advance();
+    private void consume(TokenType type, String msg){
+        if(check(type)){
+            current++;
+            return;
+        }
 
         throw error(peek(), msg);
     }
 
     private ParseError error(Token token, String msg){
-        Lox.error(token, msg);
+        errors.error(token, msg);
         return new ParseError();
     }
 
     private void synchronize(){
-        advance();
+        if(!isAtEnd()) current++;
 
         while(!isAtEnd()){
-            if(previous().type == SEMICOLON) return;
+            if(tokens.type(current - 1) == SEMICOLON) return;
 
-            switch (peek().type) {
+            switch (typeAt(current)) {
                 case CLASS, FUN, VAR, FOR, IF, WHILE, PRINT, RETURN -> {
                     return;
                 }
             }
 
-            advance();
+            current++;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+package jlox;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//Interpreter for --profile that times every statement and expression it runs. It is a
+//subclass so the plain Interpreter carries no profiling checks at all: as long as this
+//class is never loaded, execute and evaluate have a single implementation and HotSpot
+//inlines them as before.
+//
+//Each node gets an invocation count, inclusive time and exclusive time, which is its
+//inclusive time minus that of the nodes it ran. Lines add up the exclusive time of their
+//nodes, and the inclusive time of the outermost node on the line so nothing is counted
+//twice. Nodes without a token of their own, like literals, belong to their parent's line.
+final class ProfilingInterpreter extends Interpreter {
+    private static final int TABLE_ROWS = 20;
+
+    private static final class NodeStats {
+        final Object node;
+        final int line;
+        //First node on its line from the root, its time is the line's inclusive time
+        final boolean outermost;
+        long count;
+        long inclusive;
+        long exclusive;
+
+        NodeStats(Object node, int line, boolean outermost){
+            this.node = node;
+            this.line = line;
+            this.outermost = outermost;
+        }
+    }
+
+    private static final class LineStats {
+        final int line;
+        long hits;
+        long inclusive;
+        long exclusive;
+
+        LineStats(int line){
+            this.line = line;
+        }
+    }
+
+    private final Map<Object, NodeStats> nodes = new IdentityHashMap<>();
+    //Per running node, the line it is on and the time spent in the nodes it ran so far
+    private int[] lines = new int[64];
+    private long[] childTime = new long[64];
+    private int depth;
+
+    ProfilingInterpreter(OutputSink out){
+        super(out);
+    }
+
+    @Override
+    Object evaluate(Expr expr){
+        NodeStats stats = enter(expr);
+        long start = System.nanoTime();
+        try{
+            return super.evaluate(expr);
+        } finally {
+            exit(stats, start);
+        }
+    }
+
+    @Override
+    void execute(Stmt stmt){
+        NodeStats stats = enter(stmt);
+        long start = System.nanoTime();
+        try{
+            super.execute(stmt);
+        } finally {
+            exit(stats, start);
+        }
+    }
+
+    private NodeStats enter(Object node){
+        NodeStats stats = nodes.get(node);
+        if(stats == null){
+            int parent = depth > 0 ? lines[depth - 1] : 0;
+            //Blocks belong to the statement they are the body of
+            int line = node instanceof Stmt.Block && parent > 0 ? parent : Lines.of(node);
+            if(line <= 0) line = parent;
+            stats = new NodeStats(node, line, depth == 0 || line != parent);
+            nodes.put(node, stats);
+        }
+
+        if(depth == lines.length){
+            lines = Arrays.copyOf(lines, depth * 2);
+            childTime = Arrays.copyOf(childTime, depth * 2);
+        }
+        lines[depth] = stats.line;
+        childTime[depth] = 0;
+        depth++;
+        return stats;
+    }
+
+    private void exit(NodeStats stats, long start){
+        long elapsed = System.nanoTime() - start;
+        depth--;
+        stats.count++;
+        stats.inclusive += elapsed;
+        stats.exclusive += elapsed - childTime[depth];
+        if(depth > 0) childTime[depth - 1] += elapsed;
+    }
+
+    private List<LineStats> lineStats(){
+        Map<Integer, LineStats> byLine = new TreeMap<>();
+        for(NodeStats stats: nodes.values()){
+            LineStats line = byLine.computeIfAbsent(stats.line, LineStats::new);
+            line.exclusive += stats.exclusive;
+            if(stats.outermost){
+                line.hits += stats.count;
+                line.inclusive += stats.inclusive;
+            }
+        }
+        List<LineStats> result = new ArrayList<>(byLine.values());
+        result.sort(Comparator.comparingLong((LineStats line) -> line.exclusive).reversed());
+        return result;
+    }
+
+    private long total(){
+        long total = 0;
+        for(NodeStats stats: nodes.values()){
+            total += stats.exclusive;
+        }
+        return total;
+    }
+
+    //Hottest lines first. source holds the script's lines when they are at hand, or null.
+    void printTable(PrintStream out, List<String> source){
+        List<LineStats> lines = lineStats();
+        long total = total();
+        out.printf("Profile: %.3f ms over %d lines%n", total / 1e6, lines.size());
+        out.printf("%6s %12s %12s %7s %12s  %s%n", "line", "hits", "self ms", "self %", "total ms", "source");
+        for(LineStats line: lines.subList(0, Math.min(TABLE_ROWS, lines.size()))){
+            String text = source != null && line.line >= 1 && line.line <= source.size()
+                    ? source.get(line.line - 1).strip() : "";
+            out.printf("%6d %12d %12.3f %6.1f%% %12.3f  %s%n", line.line, line.hits, line.exclusive / 1e6,
+                    total == 0 ? 0.0 : 100.0 * line.exclusive / total, line.inclusive / 1e6, text);
+        }
+        if(lines.size() > TABLE_ROWS) out.printf("... %d more lines%n", lines.size() - TABLE_ROWS);
+    }
+
+    void printJson(PrintStream out){
+        StringBuilder json = new StringBuilder();
+        json.append("{\"totalNanos\":").append(total()).append(",\"lines\":[");
+        List<LineStats> lines = lineStats();
+        for(int i = 0; i < lines.size(); i++){
+            LineStats line = lines.get(i);
+            if(i > 0) json.append(',');
+            json.append("{\"line\":").append(line.line)
+                    .append(",\"hits\":").append(line.hits)
+                    .append(",\"selfNanos\":").append(line.exclusive)
+                    .append(",\"totalNanos\":").append(line.inclusive).append('}');
+        }
+
+        json.append("],\"nodes\":[");
+        List<NodeStats> nodes = new ArrayList<>(this.nodes.values());
+        nodes.sort(Comparator.comparingLong((NodeStats stats) -> stats.exclusive).reversed());
+        for(int i = 0; i < nodes.size(); i++){
+            NodeStats stats = nodes.get(i);
+            if(i > 0) json.append(',');
+            json.append("{\"line\":").append(stats.line)
+                    .append(",\"node\":\"").append(stats.node.getClass().getSimpleName())
+                    .append("\",\"count\":").append(stats.count)
+                    .append(",\"inclusiveNanos\":").append(stats.inclusive)
+                    .append(",\"exclusiveNanos\":").append(stats.exclusive).append('}');
+        }
+        json.append("]}");
+        out.println(json);
+    }
+}
@@ -0,0 +1,519 @@
+package jlox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+//Compiled form of scripts kept on disk so a script that hasn't changed skips scanning,
+//parsing and optimizing. A cache file holds the optimized AST in a compact binary form,
+//keyed by a SHA-256 of the script's bytes and the build of the interpreter, and is read back
+//through a memory mapping. Resolution is left to the backend that runs the program, it
+//differs between backends and is a single cheap pass.
+//
+//Files are either next to the script, as script.lox.loxc, or named by the content hash
+//in a cache directory. Anything that doesn't match, down to a truncated file, is a miss.
+final class ProgramCache {
+    //Bumped whenever the AST, the Optimizer or this encoding changes. Maven builds also get
+    //a fresh VERSION every time, this covers classes compiled by hand.
+    static final int FORMAT = 3;
+    static final String SUFFIX = ".loxc";
+    private static final int MAGIC = 0x4C4F5843; //"LOXC"
+
+    private static final String VERSION = version();
+
+    //Null to keep cache files next to their scripts
+    private final Path directory;
+
+    ProgramCache(Path directory){
+        this.directory = directory;
+    }
+
+    //Hashes the script as it is now, the entry stays valid for exactly these bytes
+    Entry entry(Path script) throws IOException {
+        byte[] hash;
+        try(FileChannel channel = FileChannel.open(script, StandardOpenOption.READ)){
+            MessageDigest digest = sha256();
+            long size = channel.size();
+            for(long position = 0; position < size; position += Integer.MAX_VALUE){
+                long length = Math.min(Integer.MAX_VALUE, size - position);
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+            hash = digest.digest();
+        }
+
+        Path file = directory != null
+                ? directory.resolve(HexFormat.of().formatHex(hash) + SUFFIX)
+                : script.resolveSibling(script.getFileName() + SUFFIX);
+        return new Entry(file, hash);
+    }
+
+    static final class Entry {
+        private final Path file;
+        private final byte[] hash;
+
+        private Entry(Path file, byte[] hash){
+            this.file = file;
+            this.hash = hash;
+        }
+
+        Path file(){
+            return file;
+        }
+
+        //The cached program, or null when there is none for this script and version
+        List<Stmt> load() throws IOException {
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                return new Reader(buffer).program(hash);
+            } catch (NoSuchFileException error){
+                return null;
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException error){
+                //Truncated or damaged, it is rewritten after this run parses the script
+                return null;
+            }
+        }
+
+        //Written to a temporary file and moved into place, so readers never see half a
+        //file. The cache is only an optimization, a failed write leaves things as they were.
+        void store(List<Stmt> statements){
+            Path temporary = null;
+            try{
+                Path parent = file.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+                Files.write(temporary, new Writer().program(hash, statements));
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | UncheckedIOException error){
+                try{
+                    if(temporary != null) Files.deleteIfExists(temporary);
+                } catch (IOException ignored){
+                }
+            }
+        }
+    }
+
+    //The id Maven gives every build in jlox/build.properties, so a rebuilt interpreter
+    //never loads trees an older one wrote. Classes compiled without Maven have no id, for
+    //them FORMAT and the Implementation-Version are all there is.
+    private static String version(){
+        try(InputStream in = ProgramCache.class.getResourceAsStream("build.properties")){
+            if(in != null){
+                Properties properties = new Properties();
+                properties.load(in);
+                String build = properties.getProperty("build");
+                if(build != null && !build.startsWith("${")) return FORMAT + "/" + build;
+            }
+        } catch (IOException ignored){
+        }
+        String version = Lox.class.getPackage().getImplementationVersion();
+        return FORMAT + "/" + (version != null ? version : "dev");
+    }
+
+    private static MessageDigest sha256(){
+        try{
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException error){
+            throw new IllegalStateException(error);
+        }
+    }
+
+    //---------------------------------------------------------------------------------
+    // Encoding
+    //
+    // header:     MAGIC as an int, version string, 32 byte hash
+    // names:      count, then each name; identifier tokens refer to them by index
+    // statements: count, then each tree in prefix order, one tag byte per node
+    //
+    // A name token is its name index and line, an operator token its type and line.
+    // A line is stored as the difference from the previous token's, usually 0. Strings
+    // are a length and UTF-8 bytes. Counts, lengths, indexes and lines are varints,
+    // whole numbers that fit one too, other numbers big endian doubles.
+
+    private static final byte NONE = 0;
+    private static final byte BLOCK = 1;
+    private static final byte EXPRESSION = 2;
+    private static final byte IF = 3;
+    private static final byte PRINT = 4;
+    private static final byte VAR = 5;
+    private static final byte WHILE = 6;
+    private static final byte ASSIGN = 7;
+    private static final byte BINARY = 8;
+    private static final byte GROUPING = 9;
+    private static final byte NIL = 10;
+    private static final byte TRUE = 11;
+    private static final byte FALSE = 12;
+    private static final byte NUMBER = 13;
+    private static final byte STRING = 14;
+    private static final byte LOGICAL = 15;
+    private static final byte UNARY = 16;
+    private static final byte VARIABLE = 17;
+    private static final byte INTEGER = 18;
+
+    //Small negative numbers to small varints
+    private static int zigZag(int value){
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static final class Writer implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> names = new HashMap<>();
+        private final List<String> nameList = new ArrayList<>();
+        private int line;
+
+        byte[] program(byte[] hash, List<Stmt> statements) throws IOException {
+            writeVarInt(statements.size());
+            for(Stmt statement: statements){
+                write(statement);
+            }
+            byte[] body = bytes.toByteArray();
+
+            bytes.reset();
+            writeInt(MAGIC);
+            writeString(VERSION);
+            out.write(hash);
+            writeVarInt(nameList.size());
+            for(String name: nameList){
+                writeString(name);
+            }
+            out.write(body);
+            return bytes.toByteArray();
+        }
+
+        private void write(Stmt stmt){
+            if(stmt == null) writeByte(NONE);
+            else stmt.accept(this);
+        }
+
+        private void write(Expr expr){
+            if(expr == null) writeByte(NONE);
+            else expr.accept(this);
+        }
+
+        private void writeName(Token name){
+            Integer index = names.get(name.lexeme);
+            if(index == null){
+                index = nameList.size();
+                names.put(name.lexeme, index);
+                nameList.add(name.lexeme);
+            }
+            writeVarInt(index);
+            writeLine(name.line);
+        }
+
+        private void writeOperator(Token operator){
+            writeByte(operator.type.ordinal());
+            writeLine(operator.line);
+        }
+
+        private void writeLine(int line){
+            writeVarInt(zigZag(line - this.line));
+            this.line = line;
+        }
+
+        private void writeString(String string){
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(utf8.length);
+            try{
+                out.write(utf8);
+            } catch (IOException error){
+                throw new UncheckedIOException(error);
+            }
+        }
+
+        private void writeByte(int value){
+            try{
+                out.writeByte(value);
+            } catch (IOException error){
+                throw new UncheckedIOException(error);
+            }
+        }
+
+        private void writeInt(int value){
+            try{
+                out.writeInt(value);
+            } catch (IOException error){
+                throw new UncheckedIOException(error);
+            }
+        }
+
+        //Seven bits at a time, low bits first, the high bit set on all but the last byte
+        private void writeVarInt(int value){
+            while((value & ~0x7F) != 0){
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        private void writeDouble(double value){
+            try{
+                out.writeDouble(value);
+            } catch (IOException error){
+                throw new UncheckedIOException(error);
+            }
+        }
+
+        @Override
+        public Void visitBlockStmt(Stmt.Block stmt) {
+            writeByte(BLOCK);
+            writeOperator(stmt.brace);
+            writeVarInt(stmt.statements.size());
+            for(Stmt statement: stmt.statements){
+                write(statement);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStmt(Stmt.Expression stmt) {
+            writeByte(EXPRESSION);
+            write(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(Stmt.If stmt) {
+            writeByte(IF);
+            writeOperator(stmt.keyword);
+            write(stmt.condition);
+            write(stmt.thenBranch);
+            write(stmt.elseBranch);
+            return null;
+        }
+
+        @Override
+        public Void visitPrintStmt(Stmt.Print stmt) {
+            writeByte(PRINT);
+            writeOperator(stmt.keyword);
+            write(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitVarStmt(Stmt.Var stmt) {
+            writeByte(VAR);
+            writeName(stmt.name);
+            write(stmt.initializer);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(Stmt.While stmt) {
+            writeByte(WHILE);
+            writeOperator(stmt.keyword);
+            write(stmt.condition);
+            write(stmt.body);
+            write(stmt.increment);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignExpr(Expr.Assign expr) {
+            writeByte(ASSIGN);
+            writeName(expr.name);
+            write(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryExpr(Expr.Binary expr) {
+            writeByte(BINARY);
+            write(expr.left);
+            writeOperator(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(Expr.Grouping expr) {
+            writeByte(GROUPING);
+            write(expr.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpr(Expr.Literal expr) {
+            Object value = expr.value;
+            if(value == null) writeByte(NIL);
+            else if(value instanceof Boolean bool) writeByte(bool ? TRUE : FALSE);
+            else if(value instanceof Double number){
+                int whole = number.intValue();
+                //-0.0 has to stay a double
+                if(whole >= 0 && whole == number && Double.doubleToRawLongBits(number) != Double.doubleToRawLongBits(-0.0)){
+                    writeByte(INTEGER);
+                    writeVarInt(whole);
+                }
+                else{
+                    writeByte(NUMBER);
+                    writeDouble(number);
+                }
+            }
+            else{
+                writeByte(STRING);
+                writeString(value.toString());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitLogicalExpr(Expr.Logical expr) {
+            writeByte(LOGICAL);
+            write(expr.left);
+            writeOperator(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(Expr.Unary expr) {
+            writeByte(UNARY);
+            writeOperator(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpr(Expr.Variable expr) {
+            writeByte(VARIABLE);
+            writeName(expr.name);
+            return null;
+        }
+    }
+
+    private static final class Reader {
+        private static final TokenType[] TYPES = TokenType.values();
+
+        private final ByteBuffer in;
+        private final SymbolTable symbols = new SymbolTable();
+        private int line;
+        //Symbol of each name in the file
+        private int[] names;
+
+        Reader(ByteBuffer in){
+            this.in = in;
+        }
+
+        List<Stmt> program(byte[] hash){
+            if(in.remaining() < 4 || in.getInt() != MAGIC) return null;
+            if(!VERSION.equals(readString())) return null;
+            byte[] stored = new byte[hash.length];
+            in.get(stored);
+            if(!Arrays.equals(stored, hash)) return null;
+
+            names = new int[count()];
+            for(int i = 0; i < names.length; i++){
+                names[i] = symbols.intern(readString());
+            }
+
+            int count = count();
+            List<Stmt> statements = new ArrayList<>(count);
+            for(int i = 0; i < count; i++){
+                statements.add(statement());
+            }
+            if(in.hasRemaining()) throw new IllegalArgumentException("Trailing bytes");
+            return statements;
+        }
+
+        private Stmt statement(){
+            byte tag = in.get();
+            return switch (tag) {
+                case NONE -> null;
+                case BLOCK -> {
+                    Token brace = operator();
+                    int count = count();
+                    List<Stmt> statements = new ArrayList<>(count);
+                    for(int i = 0; i < count; i++){
+                        statements.add(statement());
+                    }
+                    yield new Stmt.Block(brace, statements);
+                }
+                case EXPRESSION -> new Stmt.Expression(expression());
+                case IF -> new Stmt.If(operator(), expression(), statement(), statement());
+                case PRINT -> new Stmt.Print(operator(), expression());
+                case VAR -> new Stmt.Var(name(), expression());
+                case WHILE -> new Stmt.While(operator(), expression(), statement(), expression());
+                default -> throw new IllegalArgumentException("Bad statement tag " + tag);
+            };
+        }
+
+        private Expr expression(){
+            byte tag = in.get();
+            return switch (tag) {
+                case NONE -> null;
+                case ASSIGN -> new Expr.Assign(name(), expression());
+                case BINARY -> new Expr.Binary(expression(), operator(), expression());
+                case GROUPING -> new Expr.Grouping(expression());
+                case NIL -> new Expr.Literal(null);
+                case TRUE -> new Expr.Literal(true);
+                case FALSE -> new Expr.Literal(false);
+                case NUMBER -> new Expr.Literal(in.getDouble());
+                case INTEGER -> new Expr.Literal((double) readVarInt());
+                case STRING -> new Expr.Literal(readString());
+                case LOGICAL -> new Expr.Logical(expression(), operator(), expression());
+                case UNARY -> new Expr.Unary(operator(), expression());
+                case VARIABLE -> new Expr.Variable(name());
+                default -> throw new IllegalArgumentException("Bad expression tag " + tag);
+            };
+        }
+
+        private Token name(){
+            int symbol = names[readVarInt()];
+            return new Token(TokenType.IDENTIFIER, symbols.name(symbol), null, readLine(), symbol);
+        }
+
+        private Token operator(){
+            TokenType type = TYPES[in.get()];
+            return new Token(type, TokenBuffer.fixedLexeme(type), null, readLine());
+        }
+
+        private int readLine(){
+            int delta = readVarInt();
+            line += (delta >>> 1) ^ -(delta & 1);
+            return line;
+        }
+
+        private int readVarInt(){
+            int value = 0;
+            for(int shift = 0; shift < 32; shift += 7){
+                byte b = in.get();
+                value |= (b & 0x7F) << shift;
+                if(b >= 0) return value;
+            }
+            throw new IllegalArgumentException("Bad varint");
+        }
+
+        private int count(){
+            int count = readVarInt();
+            if(count < 0 || count > in.remaining()) throw new IllegalArgumentException("Bad count " + count);
+            return count;
+        }
+
+        private String readString(){
+            byte[] utf8 = new byte[count()];
+            in.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package jlox;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Stack;
+import java.util.function.ToIntFunction;
+
+//Static pass that gives every variable reference a (depth, slot) pair
+public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    //Hands out global slots by name, they are shared by every program run on the same globals
+    private final ToIntFunction<String> globalSlots;
+    private final Stack<Scope> scopes = new Stack<>();
+
+    //Symbols declared in one block, a variable's slot is its index. Blocks hold a
+    //handful of names, so a scan over ints beats hashing
+    private static final class Scope {
+        private int[] symbols = new int[8];
+        private int size;
+
+        int slotOf(int symbol){
+            for(int i = 0; i < size; i++){
+                if(symbols[i] == symbol) return i;
+            }
+            return -1;
+        }
+
+        int add(int symbol){
+            if(size == symbols.length) symbols = Arrays.copyOf(symbols, size * 2);
+            symbols[size] = symbol;
+            return size++;
+        }
+
+        int size(){
+            return size;
+        }
+    }
+
+    Resolver(Interpreter interpreter){
+        this(interpreter::globalSlot);
+    }
+
+    Resolver(ToIntFunction<String> globalSlots){
+        this.globalSlots = globalSlots;
+    }
+
+    void resolve(List<Stmt> statements){
+        for(Stmt statement: statements){
+            resolve(statement);
+        }
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        //Blocks that declare nothing share their enclosing scope, so they
+        //cost no Environment at runtime and don't add to any depth
+        if(!declaresVariables(stmt)){
+            resolve(stmt.statements);
+            stmt.slots = 0;
+            return null;
+        }
+
+        beginScope();
+        resolve(stmt.statements);
+        stmt.slots = scopes.peek().size();
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        resolve(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        resolve(stmt.condition);
+        resolve(stmt.thenBranch);
+        if(stmt.elseBranch != null) resolve(stmt.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        resolve(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        //Initializer is resolved first so 'var a = a;' still reads the outer 'a'
+        if(stmt.initializer != null){
+            resolve(stmt.initializer);
+        }
+        stmt.slot = declare(stmt.name);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        resolve(stmt.condition);
+        resolve(stmt.body);
+        if(stmt.increment != null) resolve(stmt.increment);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        resolve(expr.value);
+        resolveLocal(expr, expr.name);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        resolve(expr.left);
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        resolve(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        resolve(expr.left);
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        resolveLocal(expr, expr.name);
+        return null;
+    }
+
+    private void resolve(Stmt stmt){
+        stmt.accept(this);
+    }
+
+    private void resolve(Expr expr){
+        expr.accept(this);
+    }
+
+    private static boolean declaresVariables(Stmt.Block block){
+        for(Stmt statement: block.statements){
+            if(statement instanceof Stmt.Var) return true;
+        }
+        return false;
+    }
+
+    private void beginScope(){
+        scopes.push(new Scope());
+    }
+
+    private void endScope(){
+        scopes.pop();
+    }
+
+    //Redeclaring a name in the same scope reuses its slot
+    private int declare(Token name){
+        if(scopes.isEmpty()) return globalSlots.applyAsInt(name.lexeme);
+
+        //Locals are told apart by symbol alone
+        if(name.symbol < 0) throw new IllegalArgumentException("Identifier '" + name.lexeme + "' has no symbol");
+        Scope scope = scopes.peek();
+        int slot = scope.slotOf(name.symbol);
+        if(slot < 0) slot = scope.add(name.symbol);
+        return slot;
+    }
+
+    private void resolveLocal(Expr expr, Token name){
+        for(int i = scopes.size() - 1; i >= 0; i--){
+            int slot = scopes.get(i).slotOf(name.symbol);
+            if(slot >= 0){
+                setLocation(expr, scopes.size() - 1 - i, slot);
+                return;
+            }
+        }
+
+        //Not found in any block, assume it is global
+        setLocation(expr, -1, globalSlots.applyAsInt(name.lexeme));
+    }
+
+    private void setLocation(Expr expr, int depth, int slot){
+        if(expr instanceof Expr.Variable variable){
+            variable.depth = depth;
+            variable.slot = slot;
+        }
+        else if(expr instanceof Expr.Assign assign){
+            assign.depth = depth;
+            assign.slot = slot;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package jlox;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,7 +8,9 @@ import static jlox.TokenType.*;
 
 public class Scanner {
     private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+    private final SymbolTable symbols;
+    private final ErrorReporter errors;
+    private final TokenBuffer tokens;
     private int start = 0;
     private int current = 0;
     private int line = 1;
@@ -35,20 +36,104 @@ public class Scanner {
         keywords.put("while",  WHILE);
     }
 
+    //Keywords by first and last letter, which no two of them share, so a word is
+    //compared to one keyword at most and never has to become a String first
+    private static final String[] KEYWORDS = new String[26 * 26];
+    private static final TokenType[] KEYWORD_TYPES = new TokenType[26 * 26];
+
+    static {
+        for(Map.Entry<String, TokenType> keyword: keywords.entrySet()){
+            String text = keyword.getKey();
+            int slot = (text.charAt(0) - 'a') * 26 + text.charAt(text.length() - 1) - 'a';
+            if(KEYWORDS[slot] != null) throw new ExceptionInInitializerError("Keywords " + text + " and " + KEYWORDS[slot] + " share a slot");
+            KEYWORDS[slot] = text;
+            KEYWORD_TYPES[slot] = keyword.getValue();
+        }
+    }
+
     Scanner(String source){
+        this(source, new SymbolTable());
+    }
+
+    Scanner(String source, SymbolTable symbols){
+        this(source, symbols, ErrorReporter.LOX);
+    }
+
+    Scanner(String source, SymbolTable symbols, ErrorReporter errors){
         this.source = source;
+        this.symbols = symbols;
+        this.errors = errors;
+        this.tokens = new TokenBuffer(source, symbols);
     }
 
-    List<Token> scanTokens(){
-        while(!isAtEnd()){
+    //Scans part of a larger source, from an offset where a token starts. Used to re-lex
+    //an edited region, so the buffer starts small instead of sized for the whole source.
+    Scanner(String source, int offset, int line, SymbolTable symbols, ErrorReporter errors){
+        this.source = source;
+        this.symbols = symbols;
+        this.errors = errors;
+        this.tokens = new TokenBuffer(source, symbols, 0);
+        this.current = offset;
+        this.line = line;
+    }
+
+    //Keyword type for the word source[start, end), null for identifiers
+    static TokenType keyword(String source, int start, int end){
+        int slot = keywordSlot(source.charAt(start), source.charAt(end - 1), end - start);
+        if(slot < 0 || !KEYWORDS[slot].regionMatches(0, source, start, end - start)) return null;
+        return KEYWORD_TYPES[slot];
+    }
+
+    //Same for an ASCII word scanned from raw bytes
+    static TokenType keyword(byte[] bytes, int offset, int length){
+        int slot = keywordSlot(bytes[offset], bytes[offset + length - 1], length);
+        if(slot < 0) return null;
+        String keyword = KEYWORDS[slot];
+        for(int i = 0; i < length; i++){
+            if(keyword.charAt(i) != bytes[offset + i]) return null;
+        }
+        return KEYWORD_TYPES[slot];
+    }
+
+    //Slot of the only keyword the word could be, -1 if it can't be one
+    private static int keywordSlot(int first, int last, int length){
+        if(first < 'a' || first > 'z' || last < 'a' || last > 'z') return -1;
+        int slot = (first - 'a') * 26 + last - 'a';
+        return KEYWORDS[slot] != null && KEYWORDS[slot].length() == length ? slot : -1;
+    }
+
+    TokenBuffer scan(){
+        scanUntil(source.length());
+        return finish();
+    }
+
+    //Stops at the first token boundary at or after limit, which is past it when a
+    //string or comment runs over
+    void scanUntil(int limit){
+        while(!isAtEnd() && current < limit){
             start = current;
             scanToken();
         }
+    }
 
-        tokens.add(new Token(EOF, "", null, line));
+    TokenBuffer finish(){
+        tokens.add(EOF, current, 0, line);
         return tokens;
     }
 
+    int position(){
+        return current;
+    }
+
+    int line(){
+        return line;
+    }
+
+    //Materializes every token, the Parser reads the buffer directly
+    List<Token> scanTokens(){
+        return scan().toList();
+    }
+
     private void scanToken(){
         char c = advance();
 
@@ -103,7 +188,7 @@ public class Scanner {
                     identifier();
                 }
                 else {
-                    Lox.error(line, "Unexpected character.");
+                    errors.error(line, "Unexpected character.");
                 }
                 break;
         }
@@ -119,8 +204,7 @@ public class Scanner {
     }
 
     private void addToken(TokenType type, Object literal){
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        tokens.add(type, start, current - start, line, literal);
     }
 
     private boolean match(char c){
@@ -145,9 +229,10 @@ public class Scanner {
             if(peek() == '\n') line++;
             advance();
         }
-        if(isAtEnd()) Lox.error(line, "Unterminated String.");
+        if(isAtEnd()) errors.error(line, "Unterminated String.");
         advance();
-        String value = source.substring(start + 1, current - 1);
+        //A quote that is the last character has nothing after it to drop
+        String value = source.substring(start + 1, Math.max(start + 1, current - 1));
         addToken(STRING, value);
     }
 
@@ -162,10 +247,14 @@ public class Scanner {
 
     private void identifier(){
         while(isAlphaNumeric(peek()) && !isAtEnd()) advance();
-        String text = source.substring(start, current);
-        TokenType type = keywords.get(text);
-        if (type == null) type = IDENTIFIER;
-        addToken(type);
+        TokenType type = keyword(source, start, current);
+        if (type != null){
+            addToken(type);
+            return;
+        }
+        //Every occurrence of a name shares the interned String. Keywords are never
+        //interned, they can't name anything.
+        tokens.addIdentifier(start, current - start, line, symbols.intern(source, start, current));
     }
 
     private boolean isAlpha(char c){
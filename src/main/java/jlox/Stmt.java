@@ -12,7 +12,8 @@ abstract class Stmt {
     R visitWhileStmt(While stmt);
   }
   static class Block extends Stmt {
-    Block(List<Stmt> statements) {
+    Block(Token brace, List<Stmt> statements) {
+      this.brace = brace;
       this.statements = statements;
     }
 
@@ -21,7 +22,11 @@ abstract class Stmt {
       return visitor.visitBlockStmt(this);
     }
 
+    //The '{', or the keyword of the statement a block stands in for
+    final Token brace;
     final List<Stmt> statements;
+    //Number of variables declared directly in the block, filled in by the Resolver
+    int slots;
   }
   static class Expression extends Stmt {
     Expression(Expr expression) {
@@ -36,7 +41,8 @@ abstract class Stmt {
     final Expr expression;
   }
   static class If extends Stmt {
-    If(Expr condition, Stmt thenBranch, Stmt elseBranch) {
+    If(Token keyword, Expr condition, Stmt thenBranch, Stmt elseBranch) {
+      this.keyword = keyword;
       this.condition = condition;
       this.thenBranch = thenBranch;
       this.elseBranch = elseBranch;
@@ -47,12 +53,14 @@ abstract class Stmt {
       return visitor.visitIfStmt(this);
     }
 
+    final Token keyword;
     final Expr condition;
     final Stmt thenBranch;
     final Stmt elseBranch;
   }
   static class Print extends Stmt {
-    Print(Expr expression) {
+    Print(Token keyword, Expr expression) {
+      this.keyword = keyword;
       this.expression = expression;
     }
 
@@ -61,6 +69,7 @@ abstract class Stmt {
       return visitor.visitPrintStmt(this);
     }
 
+    final Token keyword;
     final Expr expression;
   }
   static class Var extends Stmt {
@@ -76,11 +85,15 @@ abstract class Stmt {
 
     final Token name;
     final Expr initializer;
+    //Filled in by the Resolver
+    int slot;
   }
   static class While extends Stmt {
-    While(Expr condition, Stmt body) {
+    While(Token keyword, Expr condition, Stmt body, Expr increment) {
+      this.keyword = keyword;
       this.condition = condition;
       this.body = body;
+      this.increment = increment;
     }
 
     @Override
@@ -88,8 +101,12 @@ abstract class Stmt {
       return visitor.visitWhileStmt(this);
     }
 
+    //'while' or 'for', for the loop's line
+    final Token keyword;
     final Expr condition;
     final Stmt body;
+    //Evaluated after the body on every iteration, null unless desugared from a 'for'
+    final Expr increment;
   }
 
   abstract <R> R accept(Visitor<R> visitor);
@@ -0,0 +1,100 @@
+package jlox;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//Names of one program, interned by the Scanner. Every distinct name gets a dense id in
+//order of first appearance and one canonical String, so tokens for the same variable
+//share it and later passes compare ids instead of hashing strings.
+final class SymbolTable {
+    private String[] names = new String[16];
+    //Open addressing with linear probing, a bucket holds id + 1 so 0 means empty
+    private int[] buckets = new int[32];
+    private int size;
+
+    //Looks the name up straight from the source range, a String is only cut for new names
+    int intern(String source, int start, int end){
+        int length = end - start;
+        int mask = buckets.length - 1;
+        for(int i = spread(hash(source, start, end)) & mask; ; i = (i + 1) & mask){
+            int entry = buckets[i];
+            if(entry == 0) return add(source.substring(start, end), i);
+
+            String name = names[entry - 1];
+            if(name.length() == length && name.regionMatches(0, source, start, length)) return entry - 1;
+        }
+    }
+
+    //Same lookup for an ASCII name scanned from raw bytes
+    int intern(byte[] bytes, int offset, int length){
+        int mask = buckets.length - 1;
+        for(int i = spread(hash(bytes, offset, length)) & mask; ; i = (i + 1) & mask){
+            int entry = buckets[i];
+            if(entry == 0) return add(new String(bytes, offset, length, StandardCharsets.ISO_8859_1), i);
+
+            String name = names[entry - 1];
+            if(name.length() == length && matches(name, bytes, offset)) return entry - 1;
+        }
+    }
+
+    int intern(String name){
+        return intern(name, 0, name.length());
+    }
+
+    String name(int symbol){
+        return names[symbol];
+    }
+
+    int size(){
+        return size;
+    }
+
+    private int add(String name, int bucket){
+        if(size == names.length) names = Arrays.copyOf(names, size * 2);
+        names[size] = name;
+        buckets[bucket] = ++size;
+        //Keep the load factor under one half
+        if(size * 2 > buckets.length) rehash();
+        return size - 1;
+    }
+
+    private void rehash(){
+        int[] old = buckets;
+        buckets = new int[old.length * 2];
+        int mask = buckets.length - 1;
+        for(int entry: old){
+            if(entry == 0) continue;
+            int i = spread(names[entry - 1].hashCode()) & mask;
+            while(buckets[i] != 0) i = (i + 1) & mask;
+            buckets[i] = entry;
+        }
+    }
+
+    //Same as String.hashCode over the range, so rehashing can use the cached one
+    private static int hash(String source, int start, int end){
+        int hash = 0;
+        for(int i = start; i < end; i++){
+            hash = 31 * hash + source.charAt(i);
+        }
+        return hash;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length){
+        int hash = 0;
+        for(int i = offset; i < offset + length; i++){
+            hash = 31 * hash + (bytes[i] & 0xff);
+        }
+        return hash;
+    }
+
+    private static boolean matches(String name, byte[] bytes, int offset){
+        for(int i = 0; i < name.length(); i++){
+            if(name.charAt(i) != (bytes[offset + i] & 0xff)) return false;
+        }
+        return true;
+    }
+
+    private static int spread(int hash){
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -5,12 +5,18 @@ public class Token {
     final String lexeme;
     final Object literal; //number or string
     final int line;
+    final int symbol; //id in the program's SymbolTable, -1 unless an identifier
 
     Token(TokenType type, String lexeme, Object literal, int line){
+        this(type, lexeme, literal, line, -1);
+    }
+
+    Token(TokenType type, String lexeme, Object literal, int line, int symbol){
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
         this.line = line;
+        this.symbol = symbol;
     }
 
     public String toString(){
@@ -0,0 +1,208 @@
+package jlox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Token stream as parallel arrays instead of one Token object per token. A token is its
+//index: type ordinal, start offset and length in the source, line, and a reference
+//that is the symbol id for identifiers or an index into the literal table for numbers
+//and strings. Lexemes are cut from the source only when a Token is materialized.
+//Buffers filled by ByteScanner have no source String, their lexemes are rebuilt from
+//the type, the symbol table or the literal, and offsets are longs so files over 2 GB fit.
+final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final String[] FIXED_LEXEMES = fixedLexemes();
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_INITIAL_CAPACITY = 1 << 20;
+
+    private final String source;
+    private final SymbolTable symbols;
+
+    private byte[] types;
+    private long[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int[] refs;
+    private int size;
+
+    private Object[] literals = new Object[MIN_CAPACITY];
+    //Source text of numbers and unterminated strings, only kept when there is no source
+    //String. Other strings are their value in quotes.
+    private String[] literalLexemes;
+    private int literalCount;
+
+    TokenBuffer(String source, SymbolTable symbols){
+        this(source, symbols, source.length());
+    }
+
+    TokenBuffer(SymbolTable symbols, long sourceLength){
+        this(null, symbols, sourceLength);
+        literalLexemes = new String[MIN_CAPACITY];
+    }
+
+    TokenBuffer(String source, SymbolTable symbols, long sourceLength){
+        this.source = source;
+        this.symbols = symbols;
+        //Roughly one token every few characters in typical code, grown as needed
+        int capacity = (int) Math.min(MAX_INITIAL_CAPACITY, Math.max(MIN_CAPACITY, sourceLength / 8));
+        types = new byte[capacity];
+        starts = new long[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+        refs = new int[capacity];
+    }
+
+    //Lexeme of a punctuation or keyword token, null for any other type
+    static String fixedLexeme(TokenType type){
+        return FIXED_LEXEMES[type.ordinal()];
+    }
+
+    private static String[] fixedLexemes(){
+        String[] lexemes = new String[TYPES.length];
+        String[] punctuation = {"(", ")", "{", "}", ",", ".", "-", "+", ";", "/", "*",
+                "!", "!=", "=", "==", ">", ">=", "<", "<="};
+        System.arraycopy(punctuation, 0, lexemes, 0, punctuation.length);
+        for(int i = TokenType.AND.ordinal(); i <= TokenType.WHILE.ordinal(); i++){
+            lexemes[i] = TYPES[i].name().toLowerCase();
+        }
+        lexemes[TokenType.EOF.ordinal()] = "";
+        return lexemes;
+    }
+
+    //Re-encodes tokens that were already materialized, lexemes are laid out one after
+    //another as the buffer's source. Identifiers built without a symbol are interned into
+    //a fresh table, and since its ids would clash with a scanner's, then all of them are.
+    static TokenBuffer of(List<Token> tokens){
+        StringBuilder text = new StringBuilder();
+        boolean interned = true;
+        for(Token token: tokens){
+            text.append(token.lexeme).append(' ');
+            if(token.type == TokenType.IDENTIFIER && token.symbol < 0) interned = false;
+        }
+
+        SymbolTable symbols = interned ? null : new SymbolTable();
+        TokenBuffer buffer = new TokenBuffer(text.toString(), symbols);
+        int start = 0;
+        for(Token token: tokens){
+            int length = token.lexeme.length();
+            if(token.type == TokenType.IDENTIFIER){
+                int symbol = interned ? token.symbol : symbols.intern(token.lexeme);
+                buffer.addIdentifier(start, length, token.line, symbol);
+            }
+            else{
+                buffer.add(token.type, start, length, token.line, token.literal);
+            }
+            start += length + 1;
+        }
+        return buffer;
+    }
+
+    void add(TokenType type, long start, int length, int line){
+        add(type, start, length, line, -1);
+    }
+
+    void add(TokenType type, long start, int length, int line, Object literal){
+        add(type, start, length, line, literal, null);
+    }
+
+    void add(TokenType type, long start, int length, int line, Object literal, String lexeme){
+        if(literal == null){
+            add(type, start, length, line, -1);
+            return;
+        }
+
+        if(literalCount == literals.length){
+            literals = Arrays.copyOf(literals, literalCount * 2);
+            if(literalLexemes != null) literalLexemes = Arrays.copyOf(literalLexemes, literalCount * 2);
+        }
+        literals[literalCount] = literal;
+        if(literalLexemes != null) literalLexemes[literalCount] = lexeme;
+        add(type, start, length, line, literalCount++);
+    }
+
+    void addIdentifier(long start, int length, int line, int symbol){
+        add(TokenType.IDENTIFIER, start, length, line, symbol);
+    }
+
+    private void add(TokenType type, long start, int length, int line, int ref){
+        if(size == types.length) grow();
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        refs[size] = ref;
+        size++;
+    }
+
+    private void grow(){
+        int capacity = size + (size >> 1);
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        refs = Arrays.copyOf(refs, capacity);
+    }
+
+    int size(){
+        return size;
+    }
+
+    TokenType type(int index){
+        return TYPES[types[index]];
+    }
+
+    int line(int index){
+        return lines[index];
+    }
+
+    long start(int index){
+        return starts[index];
+    }
+
+    int length(int index){
+        return lengths[index];
+    }
+
+    int symbol(int index){
+        return types[index] == TokenType.IDENTIFIER.ordinal() ? refs[index] : -1;
+    }
+
+    Object literal(int index){
+        byte type = types[index];
+        if(type != TokenType.NUMBER.ordinal() && type != TokenType.STRING.ordinal()) return null;
+        int ref = refs[index];
+        return ref < 0 ? null : literals[ref];
+    }
+
+    //Identifiers reuse the interned name, anything else is cut from the source
+    String lexeme(int index){
+        int symbol = symbol(index);
+        if(symbol >= 0 && symbols != null) return symbols.name(symbol);
+        if(source != null){
+            int start = (int) starts[index];
+            return source.substring(start, start + lengths[index]);
+        }
+        return rebuildLexeme(index);
+    }
+
+    private String rebuildLexeme(int index){
+        TokenType type = type(index);
+        if(type != TokenType.NUMBER && type != TokenType.STRING) return FIXED_LEXEMES[types[index]];
+        String lexeme = literalLexemes[refs[index]];
+        if(lexeme == null) return "\"" + literal(index) + "\"";
+        return lexeme;
+    }
+
+    Token token(int index){
+        return new Token(type(index), lexeme(index), literal(index), lines[index], symbol(index));
+    }
+
+    List<Token> toList(){
+        List<Token> tokens = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            tokens.add(token(i));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,273 @@
+package jlox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+import java.util.function.ToIntFunction;
+
+//Static name binding and type inference shared by the compiling backends.
+//Every variable reference and declaration is bound to a Binding, and a binding is
+//numeric when every value ever stored into it is statically a number.
+final class TypeAnalyzer {
+    enum Type { NUMBER, BOOLEAN, DYNAMIC }
+
+    static final class Binding {
+        final boolean global;
+        final int slot;
+        //Optimistic until a store of another type is found
+        boolean numeric = true;
+
+        Binding(boolean global, int slot){
+            this.global = global;
+            this.slot = slot;
+        }
+    }
+
+    private final ToIntFunction<String> globalSlot;
+
+    //Per analysis results, keyed by AST node identity
+    private final Map<Object, Binding> bindings = new IdentityHashMap<>();
+    private final Set<Expr> definedGlobals = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<Binding> storeTargets = new ArrayList<>();
+    private final List<Expr> storeValues = new ArrayList<>();
+    private int frameSize = 0;
+
+    //Global slots belong to the backend so they can outlive one analysis
+    TypeAnalyzer(ToIntFunction<String> globalSlot){
+        this.globalSlot = globalSlot;
+    }
+
+    void analyze(List<Stmt> statements){
+        bindings.clear();
+        definedGlobals.clear();
+        storeTargets.clear();
+        storeValues.clear();
+        frameSize = 0;
+
+        new Analyzer().analyze(statements);
+        inferTypes();
+    }
+
+    //Binding of a Stmt.Var, Expr.Variable or Expr.Assign
+    Binding binding(Object node){
+        return bindings.get(node);
+    }
+
+    //True for global references that always run after their declaration
+    boolean isDefined(Expr expr){
+        return definedGlobals.contains(expr);
+    }
+
+    //Number of local slots needed, sibling blocks share slots
+    int frameSize(){
+        return frameSize;
+    }
+
+    //Binds every name to a Binding and records every store into it
+    private final class Analyzer implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+        private final Stack<Map<String, Binding>> scopes = new Stack<>();
+        private final Map<String, Binding> globalBindings = new HashMap<>();
+        private final Set<String> declaredGlobals = new HashSet<>();
+        private int frameSlot = 0;
+
+        void analyze(List<Stmt> statements){
+            for(Stmt statement: statements){
+                statement.accept(this);
+            }
+        }
+
+        @Override
+        public Void visitBlockStmt(Stmt.Block stmt) {
+            scopes.push(new HashMap<>());
+            int saved = frameSlot;
+            analyze(stmt.statements);
+            frameSlot = saved;
+            scopes.pop();
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStmt(Stmt.Expression stmt) {
+            stmt.expression.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(Stmt.If stmt) {
+            stmt.condition.accept(this);
+            stmt.thenBranch.accept(this);
+            if(stmt.elseBranch != null) stmt.elseBranch.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitPrintStmt(Stmt.Print stmt) {
+            stmt.expression.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitVarStmt(Stmt.Var stmt) {
+            //Initializer is bound first so 'var a = a;' still reads the outer 'a'
+            if(stmt.initializer != null) stmt.initializer.accept(this);
+            Binding binding = declare(stmt.name.lexeme);
+            bindings.put(stmt, binding);
+            addStore(binding, stmt.initializer);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(Stmt.While stmt) {
+            stmt.condition.accept(this);
+            stmt.body.accept(this);
+            if(stmt.increment != null) stmt.increment.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignExpr(Expr.Assign expr) {
+            expr.value.accept(this);
+            addStore(lookUp(expr, expr.name.lexeme), expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryExpr(Expr.Binary expr) {
+            expr.left.accept(this);
+            expr.right.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(Expr.Grouping expr) {
+            expr.expression.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpr(Expr.Literal expr) {
+            return null;
+        }
+
+        @Override
+        public Void visitLogicalExpr(Expr.Logical expr) {
+            expr.left.accept(this);
+            expr.right.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(Expr.Unary expr) {
+            expr.right.accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpr(Expr.Variable expr) {
+            lookUp(expr, expr.name.lexeme);
+            return null;
+        }
+
+        //Redeclaring a name in the same scope reuses its binding
+        private Binding declare(String name){
+            if(scopes.isEmpty()){
+                declaredGlobals.add(name);
+                return globalBinding(name);
+            }
+
+            Map<String, Binding> scope = scopes.peek();
+            Binding binding = scope.get(name);
+            if(binding == null){
+                binding = new Binding(false, frameSlot++);
+                frameSize = Math.max(frameSize, frameSlot);
+                scope.put(name, binding);
+            }
+            return binding;
+        }
+
+        private Binding lookUp(Expr expr, String name){
+            for(int i = scopes.size() - 1; i >= 0; i--){
+                Binding binding = scopes.get(i).get(name);
+                if(binding != null){
+                    bindings.put(expr, binding);
+                    return binding;
+                }
+            }
+
+            //Globals are declared only by top level statements, so one declared earlier
+            //in the source has already run by the time this reference executes. Any other
+            //reference may see an earlier REPL line's value of any type, or nothing.
+            Binding binding = globalBinding(name);
+            if(declaredGlobals.contains(name)){
+                definedGlobals.add(expr);
+            }
+            else{
+                binding.numeric = false;
+            }
+            bindings.put(expr, binding);
+            return binding;
+        }
+
+        private Binding globalBinding(String name){
+            return globalBindings.computeIfAbsent(name, key -> new Binding(true, globalSlot.applyAsInt(key)));
+        }
+
+        private void addStore(Binding binding, Expr value){
+            storeTargets.add(binding);
+            storeValues.add(value);
+        }
+    }
+
+    //Fixed point: a binding stays numeric only while every store into it is a number
+    private void inferTypes(){
+        boolean changed = true;
+        while(changed){
+            changed = false;
+            for(int i = 0; i < storeTargets.size(); i++){
+                Binding binding = storeTargets.get(i);
+                Expr value = storeValues.get(i);
+                if(binding.numeric && (value == null || type(value) != Type.NUMBER)){
+                    binding.numeric = false;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    Type type(Expr expr){
+        if(expr instanceof Expr.Literal literal){
+            if(literal.value instanceof Double) return Type.NUMBER;
+            if(literal.value instanceof Boolean) return Type.BOOLEAN;
+            return Type.DYNAMIC;
+        }
+        if(expr instanceof Expr.Grouping grouping){
+            return type(grouping.expression);
+        }
+        if(expr instanceof Expr.Unary unary){
+            return unary.operator.type == TokenType.MINUS ? Type.NUMBER : Type.BOOLEAN;
+        }
+        if(expr instanceof Expr.Binary binary){
+            return switch (binary.operator.type) {
+                //These either produce a number or throw
+                case MINUS, STAR, SLASH -> Type.NUMBER;
+                case PLUS -> type(binary.left) == Type.NUMBER && type(binary.right) == Type.NUMBER
+                        ? Type.NUMBER : Type.DYNAMIC;
+                default -> Type.BOOLEAN;
+            };
+        }
+        if(expr instanceof Expr.Logical logical){
+            Type left = type(logical.left);
+            return left == type(logical.right) ? left : Type.DYNAMIC;
+        }
+        if(expr instanceof Expr.Variable || expr instanceof Expr.Assign){
+            return bindings.get(expr).numeric ? Type.NUMBER : Type.DYNAMIC;
+        }
+        return Type.DYNAMIC;
+    }
+}
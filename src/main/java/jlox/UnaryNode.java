@@ -0,0 +1,62 @@
+package jlox;
+
+import static jlox.Environment.NUMBER;
+
+//Self-specializing implementations of Expr.Unary, see BinaryNode.
+abstract class UnaryNode {
+    static final UnaryNode UNINITIALIZED = new Uninitialized();
+    static final UnaryNode GENERIC = new Generic();
+    private static final UnaryNode NUMBER_NEGATE = new NumberNegate();
+    private static final UnaryNode NOT = new Not();
+
+    abstract Object execute(Interpreter interpreter, Expr.Unary expr);
+
+    private static final class Uninitialized extends UnaryNode {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Unary expr) {
+            Object right = interpreter.evaluate(expr.right);
+            double rightNumber = interpreter.number;
+
+            if(expr.operator.type == TokenType.BANG){
+                expr.node = NOT;
+            }
+            else if(right == NUMBER){
+                expr.node = NUMBER_NEGATE;
+            }
+            else{
+                expr.node = GENERIC;
+            }
+            return interpreter.unary(expr, right, rightNumber);
+        }
+    }
+
+    private static final class Generic extends UnaryNode {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Unary expr) {
+            Object right = interpreter.evaluate(expr.right);
+            return interpreter.unary(expr, right, interpreter.number);
+        }
+    }
+
+    private static final class NumberNegate extends UnaryNode {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Unary expr) {
+            Object right = interpreter.evaluate(expr.right);
+            double rightNumber = interpreter.number;
+
+            if(right != NUMBER){
+                expr.node = GENERIC;
+                return interpreter.unary(expr, right, rightNumber);
+            }
+            return interpreter.number(-rightNumber);
+        }
+    }
+
+    //'!' accepts every type, so it never needs to fall back
+    private static final class Not extends UnaryNode {
+        @Override
+        Object execute(Interpreter interpreter, Expr.Unary expr) {
+            return !interpreter.isTruthy(interpreter.evaluate(expr.right));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package jlox.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Just enough of the class file format to write one final class of static methods.
+//Classes are written as version 49 (Java 5) so no StackMapTable is needed, the verifier
+//infers the frames itself and the emitter only has to track the stack depth.
+public final class ClassFile {
+    private static final int VERSION = 49;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    //Entries are deduplicated by a key naming their tag and contents
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+    private final List<Code> methods = new ArrayList<>();
+
+    //Names are internal names like "jlox/Generated"
+    public ClassFile(String name){
+        this.thisClass = classRef(name);
+        this.superClass = classRef("java/lang/Object");
+    }
+
+    //Adds a public static method, its code is written through the returned Code
+    public Code method(String name, String descriptor){
+        Code code = new Code(this, utf8(name), utf8(descriptor), Code.argumentSize(descriptor));
+        methods.add(code);
+        return code;
+    }
+
+    public byte[] toByteArray(){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try{
+            int codeAttribute = utf8("Code");
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); //interfaces
+            out.writeShort(0); //fields
+            out.writeShort(methods.size());
+            for(Code method: methods){
+                out.writeShort(ACC_PUBLIC | ACC_STATIC);
+                out.writeShort(method.name);
+                out.writeShort(method.descriptor);
+                out.writeShort(1); //attributes
+                method.write(out, codeAttribute);
+            }
+            out.writeShort(0); //attributes
+        } catch (IOException error){
+            throw new UncheckedIOException(error);
+        }
+        return bytes.toByteArray();
+    }
+
+    //---------------------------------------------------------------------------------
+    // Constant pool
+
+    int utf8(String value){
+        return entry("U" + value, 1, out -> {
+            out.writeByte(CONSTANT_UTF8);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String name){
+        int utf8 = utf8(name);
+        return entry("C" + name, 1, out -> {
+            out.writeByte(CONSTANT_CLASS);
+            out.writeShort(utf8);
+        });
+    }
+
+    int string(String value){
+        int utf8 = utf8(value);
+        return entry("S" + value, 1, out -> {
+            out.writeByte(CONSTANT_STRING);
+            out.writeShort(utf8);
+        });
+    }
+
+    //Doubles take two pool indexes
+    int doubleConstant(double value){
+        return entry("D" + Double.doubleToRawLongBits(value), 2, out -> {
+            out.writeByte(CONSTANT_DOUBLE);
+            out.writeDouble(value);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor){
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor){
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor){
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = entry("N" + name + " " + descriptor, 1, out -> {
+            out.writeByte(CONSTANT_NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return entry(tag + owner + "." + name + " " + descriptor, 1, out -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private interface EntryWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private int entry(String key, int size, EntryWriter writer){
+        Integer index = poolIndex.get(key);
+        if(index != null) return index;
+
+        if(poolCount + size > 0xFFFF) throw new ClassTooLargeException("Too many constants.");
+        try{
+            writer.write(poolOut);
+        } catch (UTFDataFormatException error){
+            throw new ClassTooLargeException("String constant too long.");
+        } catch (IOException error){
+            throw new UncheckedIOException(error);
+        }
+        index = poolCount;
+        poolCount += size;
+        poolIndex.put(key, index);
+        return index;
+    }
+}
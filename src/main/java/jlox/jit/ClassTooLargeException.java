@@ -0,0 +1,9 @@
+package jlox.jit;
+
+//Thrown when generated code runs past a class file limit: 64K of code per method,
+//16 bit branch offsets, 64K locals or 64K constant pool entries
+public class ClassTooLargeException extends RuntimeException {
+    public ClassTooLargeException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,266 @@
+package jlox.jit;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static jlox.jit.Opcodes.*;
+
+//Bytecode of one method. Every emit updates the operand stack depth so max_stack is
+//known at the end, and jumps to labels not yet marked are patched when they are.
+public final class Code {
+    public static final class Label {
+        private int offset = -1;
+        //Stack depth at the label, taken from the first jump to it
+        private int stackDepth = -1;
+        private final List<Integer> jumps = new ArrayList<>();
+    }
+
+    private final ClassFile classFile;
+    final int name;
+    final int descriptor;
+
+    private byte[] code = new byte[256];
+    private int length = 0;
+    private int stackDepth = 0;
+    private int maxStack = 0;
+    private int nextLocal;
+    private int maxLocals;
+
+    Code(ClassFile classFile, int name, int descriptor, int argumentSize){
+        this.classFile = classFile;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.nextLocal = argumentSize;
+        this.maxLocals = argumentSize;
+    }
+
+    //---------------------------------------------------------------------------------
+    // Locals
+
+    //Doubles take two local slots
+    public int newLocal(int size){
+        int local = nextLocal;
+        nextLocal += size;
+        if(nextLocal > 0xFFFF) throw new ClassTooLargeException("Too many locals.");
+        maxLocals = Math.max(maxLocals, nextLocal);
+        return local;
+    }
+
+    //Locals of a finished block can be handed out again
+    public int localMark(){
+        return nextLocal;
+    }
+
+    public void releaseLocals(int mark){
+        nextLocal = mark;
+    }
+
+    //---------------------------------------------------------------------------------
+    // Instructions
+
+    //Instructions without operands
+    public void insn(int opcode){
+        emit(opcode);
+        adjustStack(switch (opcode) {
+            case ACONST_NULL, ICONST_0, ICONST_1, DUP, DUP_X2 -> 1;
+            case DCONST_0, DCONST_1, DUP2, DUP2_X2 -> 2;
+            case DALOAD, DNEG, RETURN -> 0;
+            case AALOAD, POP, IXOR -> -1;
+            case POP2, DADD, DSUB, DMUL, DDIV -> -2;
+            case AASTORE, LCMP, DCMPL, DCMPG -> -3;
+            case DASTORE -> -4;
+            default -> throw new IllegalArgumentException("Unknown instruction " + opcode);
+        });
+    }
+
+    public void pushInt(int value){
+        if(value >= -1 && value <= 5){
+            emit(ICONST_0 + value);
+        }
+        else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE){
+            emit(BIPUSH);
+            emit(value);
+        }
+        else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE){
+            emit(SIPUSH);
+            emitShort(value);
+        }
+        else{
+            throw new ClassTooLargeException("Int constant out of range " + value);
+        }
+        adjustStack(1);
+    }
+
+    public void pushDouble(double value){
+        //Raw bits so -0.0 doesn't turn into dconst_0
+        if(Double.doubleToRawLongBits(value) == 0L){
+            emit(DCONST_0);
+        }
+        else if(value == 1.0){
+            emit(DCONST_1);
+        }
+        else{
+            emit(LDC2_W);
+            emitShort(classFile.doubleConstant(value));
+        }
+        adjustStack(2);
+    }
+
+    public void pushString(String value){
+        int index = classFile.string(value);
+        if(index <= 0xFF){
+            emit(LDC);
+            emit(index);
+        }
+        else{
+            emit(LDC_W);
+            emitShort(index);
+        }
+        adjustStack(1);
+    }
+
+    //ILOAD, DLOAD, ALOAD, ISTORE, DSTORE and ASTORE
+    public void local(int opcode, int local){
+        if(local > 0xFF){
+            emit(WIDE);
+            emit(opcode);
+            emitShort(local);
+        }
+        else{
+            emit(opcode);
+            emit(local);
+        }
+        adjustStack(switch (opcode) {
+            case ILOAD, ALOAD -> 1;
+            case DLOAD -> 2;
+            case ISTORE, ASTORE -> -1;
+            case DSTORE -> -2;
+            default -> throw new IllegalArgumentException("Not a local instruction " + opcode);
+        });
+    }
+
+    public void invokeStatic(String owner, String name, String descriptor){
+        emit(INVOKESTATIC);
+        emitShort(classFile.methodRef(owner, name, descriptor));
+        adjustStack(returnSize(descriptor) - argumentSize(descriptor));
+    }
+
+    public void getStatic(String owner, String name, String descriptor){
+        emit(GETSTATIC);
+        emitShort(classFile.fieldRef(owner, name, descriptor));
+        adjustStack(typeSize(descriptor.charAt(0)));
+    }
+
+    public void checkCast(String type){
+        emit(CHECKCAST);
+        emitShort(classFile.classRef(type));
+    }
+
+    //---------------------------------------------------------------------------------
+    // Jumps
+
+    public Label label(){
+        return new Label();
+    }
+
+    //GOTO and the IF* instructions that pop an int
+    public void jump(int opcode, Label label){
+        int start = length;
+        emit(opcode);
+        if(opcode != GOTO) adjustStack(-1);
+        if(label.stackDepth < 0) label.stackDepth = stackDepth;
+
+        if(label.offset >= 0){
+            emitShort(branchOffset(label.offset - start));
+        }
+        else{
+            label.jumps.add(start);
+            emitShort(0);
+        }
+    }
+
+    //Binds the label here. Code right after a GOTO is only reached through jumps,
+    //so it starts with the depth those jumps recorded.
+    public void mark(Label label){
+        label.offset = length;
+        if(label.stackDepth >= 0){
+            stackDepth = label.stackDepth;
+        }
+        else{
+            label.stackDepth = stackDepth;
+        }
+
+        for(int start: label.jumps){
+            int offset = branchOffset(length - start);
+            code[start + 1] = (byte) (offset >> 8);
+            code[start + 2] = (byte) offset;
+        }
+        label.jumps.clear();
+    }
+
+    private static int branchOffset(int offset){
+        if(offset < Short.MIN_VALUE || offset > Short.MAX_VALUE){
+            throw new ClassTooLargeException("Branch too far.");
+        }
+        return offset;
+    }
+
+    //---------------------------------------------------------------------------------
+    // Encoding
+
+    private void emit(int b){
+        if(length == code.length){
+            code = Arrays.copyOf(code, length * 2);
+        }
+        code[length++] = (byte) b;
+    }
+
+    private void emitShort(int value){
+        emit(value >> 8);
+        emit(value);
+    }
+
+    private void adjustStack(int effect){
+        stackDepth += effect;
+        maxStack = Math.max(maxStack, stackDepth);
+    }
+
+    void write(DataOutputStream out, int codeAttribute) throws IOException{
+        if(length > 0xFFFF) throw new ClassTooLargeException("Method too large.");
+
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(length);
+        out.write(code, 0, length);
+        out.writeShort(0); //exception table
+        out.writeShort(0); //attributes
+    }
+
+    //Stack slots taken by a method's arguments
+    static int argumentSize(String descriptor){
+        int size = 0;
+        int i = 1;
+        while(descriptor.charAt(i) != ')'){
+            char type = descriptor.charAt(i);
+            size += typeSize(type);
+            while(descriptor.charAt(i) == '[') i++;
+            if(descriptor.charAt(i) == 'L') i = descriptor.indexOf(';', i);
+            i++;
+        }
+        return size;
+    }
+
+    private static int returnSize(String descriptor){
+        char type = descriptor.charAt(descriptor.indexOf(')') + 1);
+        return type == 'V' ? 0 : typeSize(type);
+    }
+
+    private static int typeSize(char type){
+        return type == 'D' || type == 'J' ? 2 : 1;
+    }
+}
@@ -0,0 +1,55 @@
+package jlox.jit;
+
+//The JVM instructions the JIT emits, values from the JVM specification chapter 6
+public final class Opcodes {
+    public static final int ACONST_NULL = 1;
+    public static final int ICONST_0 = 3;
+    public static final int ICONST_1 = 4;
+    public static final int DCONST_0 = 14;
+    public static final int DCONST_1 = 15;
+    public static final int BIPUSH = 16;
+    public static final int SIPUSH = 17;
+    public static final int LDC = 18;
+    public static final int LDC_W = 19;
+    public static final int LDC2_W = 20;
+    public static final int ILOAD = 21;
+    public static final int DLOAD = 24;
+    public static final int ALOAD = 25;
+    public static final int DALOAD = 49;
+    public static final int AALOAD = 50;
+    public static final int ISTORE = 54;
+    public static final int DSTORE = 57;
+    public static final int ASTORE = 58;
+    public static final int DASTORE = 82;
+    public static final int AASTORE = 83;
+    public static final int POP = 87;
+    public static final int POP2 = 88;
+    public static final int DUP = 89;
+    public static final int DUP_X2 = 91;
+    public static final int DUP2 = 92;
+    public static final int DUP2_X2 = 94;
+    public static final int DADD = 99;
+    public static final int DSUB = 103;
+    public static final int DMUL = 107;
+    public static final int DDIV = 111;
+    public static final int DNEG = 119;
+    public static final int IXOR = 130;
+    public static final int LCMP = 148;
+    public static final int DCMPL = 151;
+    public static final int DCMPG = 152;
+    public static final int IFEQ = 153;     //s16 branch offset from the opcode
+    public static final int IFNE = 154;
+    public static final int IFLT = 155;
+    public static final int IFGE = 156;
+    public static final int IFGT = 157;
+    public static final int IFLE = 158;
+    public static final int GOTO = 167;
+    public static final int RETURN = 177;
+    public static final int GETSTATIC = 178; //u16 field ref
+    public static final int INVOKESTATIC = 184; //u16 method ref
+    public static final int CHECKCAST = 192;    //u16 class ref
+    public static final int WIDE = 196;
+
+    private Opcodes(){
+    }
+}
@@ -0,0 +1,85 @@
+package jlox.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Bytecode array, constant pool and a line for every byte of code
+public final class Chunk {
+    private byte[] code = new byte[256];
+    private int[] lines = new int[256];
+    private int count = 0;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+    private int maxStack = 0;
+
+    public void write(byte b, int line){
+        if(count == code.length){
+            code = Arrays.copyOf(code, count * 2);
+            lines = Arrays.copyOf(lines, count * 2);
+        }
+        code[count] = b;
+        lines[count] = line;
+        count++;
+    }
+
+    //Callers check their operands first, this only keeps them from being truncated
+    public void writeShort(int value, int line){
+        if(value < 0 || value > 0xffff) throw new IllegalArgumentException("Operand out of range: " + value);
+        write((byte) ((value >> 8) & 0xff), line);
+        write((byte) (value & 0xff), line);
+    }
+
+    public void patchShort(int offset, int value){
+        code[offset] = (byte) ((value >> 8) & 0xff);
+        code[offset + 1] = (byte) (value & 0xff);
+    }
+
+    //Literals are deduplicated so a loop body doesn't grow the pool
+    public int addConstant(Object value){
+        Integer index = constantIndex.get(value);
+        if(index != null) return index;
+        constants.add(value);
+        constantIndex.put(value, constants.size() - 1);
+        return constants.size() - 1;
+    }
+
+    public int count(){
+        return count;
+    }
+
+    public void maxStack(int maxStack){
+        this.maxStack = maxStack;
+    }
+
+    byte[] code(){
+        return code;
+    }
+
+    public int line(int offset){
+        return lines[offset];
+    }
+
+    //Numbers in the pool are replaced by the VM's tag and kept unboxed alongside
+    Object[] constants(Object numberTag){
+        Object[] values = constants.toArray();
+        for(int i = 0; i < values.length; i++){
+            if(values[i] instanceof Double) values[i] = numberTag;
+        }
+        return values;
+    }
+
+    double[] numberConstants(){
+        double[] numbers = new double[constants.size()];
+        for(int i = 0; i < numbers.length; i++){
+            if(constants.get(i) instanceof Double number) numbers[i] = number;
+        }
+        return numbers;
+    }
+
+    int maxStack(){
+        return maxStack;
+    }
+}
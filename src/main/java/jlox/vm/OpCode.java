@@ -0,0 +1,37 @@
+package jlox.vm;
+
+//One byte per instruction, operands follow inline as big-endian u16
+public final class OpCode {
+    public static final byte CONSTANT = 0;      //u16 constant index
+    public static final byte NULL = 1;
+    public static final byte TRUE = 2;
+    public static final byte FALSE = 3;
+    public static final byte POP = 4;
+    public static final byte GET_LOCAL = 5;     //u16 stack slot
+    public static final byte SET_LOCAL = 6;     //u16 stack slot
+    public static final byte GET_GLOBAL = 7;    //u16 global slot
+    public static final byte SET_GLOBAL = 8;    //u16 global slot
+    public static final byte DEFINE_GLOBAL = 9; //u16 global slot
+    public static final byte EQUAL = 10;
+    public static final byte NOT_EQUAL = 11;
+    public static final byte GREATER = 12;
+    public static final byte GREATER_EQUAL = 13;
+    public static final byte LESS = 14;
+    public static final byte LESS_EQUAL = 15;
+    public static final byte ADD = 16;
+    public static final byte SUBTRACT = 17;
+    public static final byte MULTIPLY = 18;
+    public static final byte DIVIDE = 19;
+    public static final byte NOT = 20;
+    public static final byte NEGATE = 21;
+    public static final byte PRINT = 22;
+    public static final byte JUMP = 23;          //u16 forward offset
+    public static final byte JUMP_IF_FALSE = 24; //u16 forward offset, leaves condition on stack
+    public static final byte JUMP_IF_TRUE = 25;  //u16 forward offset, leaves condition on stack
+    public static final byte LOOP = 26;          //u16 backward offset
+    public static final byte POPN = 27;          //u16 count
+    public static final byte RETURN = 28;
+
+    private OpCode(){
+    }
+}
@@ -0,0 +1,271 @@
+package jlox.vm;
+
+import jlox.LoxString;
+import jlox.NumberFormatter;
+import jlox.OutputSink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static jlox.vm.OpCode.*;
+
+//Stack machine that runs a Chunk produced by the bytecode compiler
+//Numbers are never boxed: a stack or global slot holding NUMBER has its value in the parallel double[]
+public class VM {
+    private static final Object NUMBER = new Object();
+    //Marks global slots that no 'var' has filled yet
+    private static final Object UNDEFINED = new Object();
+
+    private final Map<String, Integer> globalSlots = new HashMap<>();
+    private final List<String> globalNames = new ArrayList<>();
+    private Object[] globals = new Object[0];
+    private double[] globalNumbers = new double[0];
+    private final OutputSink out;
+
+    public VM(){
+        this(OutputSink.stdout(false));
+    }
+
+    public VM(OutputSink out){
+        this.out = out;
+    }
+
+    public int globalSlot(String name){
+        Integer slot = globalSlots.get(name);
+        if(slot == null){
+            slot = globalNames.size();
+            globalSlots.put(name, slot);
+            globalNames.add(name);
+        }
+        return slot;
+    }
+
+    public void interpret(Chunk chunk){
+        if(globals.length < globalNames.size()){
+            int length = globals.length;
+            globals = Arrays.copyOf(globals, globalNames.size());
+            globalNumbers = Arrays.copyOf(globalNumbers, globalNames.size());
+            Arrays.fill(globals, length, globals.length, UNDEFINED);
+        }
+        try{
+            run(chunk);
+        } finally {
+            out.flush();
+        }
+    }
+
+    private void run(Chunk chunk){
+        final byte[] code = chunk.code();
+        final Object[] constants = chunk.constants(NUMBER);
+        final double[] numberConstants = chunk.numberConstants();
+        final Object[] globals = this.globals;
+        final double[] globalNumbers = this.globalNumbers;
+        final Object[] stack = new Object[chunk.maxStack()];
+        final double[] numbers = new double[chunk.maxStack()];
+        int sp = 0;
+        int ip = 0;
+
+        for(;;){
+            byte instruction = code[ip++];
+            switch (instruction) {
+                case CONSTANT -> {
+                    int index = readShort(code, ip);
+                    ip += 2;
+                    stack[sp] = constants[index];
+                    numbers[sp++] = numberConstants[index];
+                }
+                case NULL -> stack[sp++] = null;
+                case TRUE -> stack[sp++] = true;
+                case FALSE -> stack[sp++] = false;
+                case POP -> sp--;
+                case POPN -> {
+                    sp -= readShort(code, ip);
+                    ip += 2;
+                }
+                case GET_LOCAL -> {
+                    int slot = readShort(code, ip);
+                    ip += 2;
+                    stack[sp] = stack[slot];
+                    numbers[sp++] = numbers[slot];
+                }
+                case SET_LOCAL -> {
+                    int slot = readShort(code, ip);
+                    ip += 2;
+                    stack[slot] = stack[sp - 1];
+                    numbers[slot] = numbers[sp - 1];
+                }
+                case GET_GLOBAL -> {
+                    int slot = readShort(code, ip);
+                    ip += 2;
+                    Object value = globals[slot];
+                    if(value == UNDEFINED) throw undefined(chunk, ip, slot);
+                    stack[sp] = value;
+                    numbers[sp++] = globalNumbers[slot];
+                }
+                case SET_GLOBAL -> {
+                    int slot = readShort(code, ip);
+                    ip += 2;
+                    if(globals[slot] == UNDEFINED) throw undefined(chunk, ip, slot);
+                    globals[slot] = stack[sp - 1];
+                    globalNumbers[slot] = numbers[sp - 1];
+                }
+                case DEFINE_GLOBAL -> {
+                    int slot = readShort(code, ip);
+                    ip += 2;
+                    sp--;
+                    globals[slot] = stack[sp];
+                    globalNumbers[slot] = numbers[sp];
+                }
+                case EQUAL -> {
+                    sp--;
+                    stack[sp - 1] = isEqual(stack[sp - 1], numbers[sp - 1], stack[sp], numbers[sp]);
+                }
+                case NOT_EQUAL -> {
+                    sp--;
+                    stack[sp - 1] = !isEqual(stack[sp - 1], numbers[sp - 1], stack[sp], numbers[sp]);
+                }
+                case GREATER -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip, stack[sp - 1], stack[sp]);
+                    stack[sp - 1] = numbers[sp - 1] > numbers[sp];
+                }
+                case GREATER_EQUAL -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip, stack[sp - 1], stack[sp]);
+                    stack[sp - 1] = numbers[sp - 1] >= numbers[sp];
+                }
+                case LESS -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip, stack[sp - 1], stack[sp]);
+                    stack[sp - 1] = numbers[sp - 1] < numbers[sp];
+                }
+                case LESS_EQUAL -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip, stack[sp - 1], stack[sp]);
+                    stack[sp - 1] = numbers[sp - 1] <= numbers[sp];
+                }
+                case ADD -> {
+                    sp--;
+                    if(stack[sp - 1] == NUMBER && stack[sp] == NUMBER){
+                        numbers[sp - 1] += numbers[sp];
+                    }
+                    else{
+                        stack[sp - 1] = concatenate(chunk, ip, stack[sp - 1], numbers[sp - 1], stack[sp], numbers[sp]);
+                    }
+                }
+                case SUBTRACT -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip, stack[sp - 1], stack[sp]);
+                    numbers[sp - 1] -= numbers[sp];
+                }
+                case MULTIPLY -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip, stack[sp - 1], stack[sp]);
+                    numbers[sp - 1] *= numbers[sp];
+                }
+                case DIVIDE -> {
+                    sp--;
+                    checkNumberOperands(chunk, ip, stack[sp - 1], stack[sp]);
+                    if(numbers[sp] == 0){
+                        throw error(chunk, ip, "Cannot Divide by zero.");
+                    }
+                    numbers[sp - 1] /= numbers[sp];
+                }
+                case NOT -> stack[sp - 1] = !isTruthy(stack[sp - 1]);
+                case NEGATE -> {
+                    if(stack[sp - 1] != NUMBER){
+                        throw error(chunk, ip, "Operand must be a number.");
+                    }
+                    numbers[sp - 1] = -numbers[sp - 1];
+                }
+                case PRINT -> {
+                    sp--;
+                    if(stack[sp] == NUMBER){
+                        out.println(numbers[sp]);
+                    }
+                    else{
+                        out.println(stringify(stack[sp], numbers[sp]));
+                    }
+                }
+                //Jump offsets are relative to the end of the operand
+                case JUMP -> ip += readShort(code, ip) + 2;
+                case JUMP_IF_FALSE -> {
+                    int offset = readShort(code, ip);
+                    ip += 2;
+                    if(!isTruthy(stack[sp - 1])) ip += offset;
+                }
+                case JUMP_IF_TRUE -> {
+                    int offset = readShort(code, ip);
+                    ip += 2;
+                    if(isTruthy(stack[sp - 1])) ip += offset;
+                }
+                case LOOP -> ip = ip + 2 - readShort(code, ip);
+                case RETURN -> {
+                    return;
+                }
+                default -> throw new IllegalStateException("Unknown opcode " + instruction);
+            }
+        }
+    }
+
+    private static int readShort(byte[] code, int ip){
+        return ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+    }
+
+    private static Object concatenate(Chunk chunk, int ip, Object left, double leftNumber,
+                                      Object right, double rightNumber){
+        if (left instanceof CharSequence || right instanceof CharSequence) {
+            if (left == NUMBER && right instanceof CharSequence) {
+                return LoxString.concat(leftNumber, (CharSequence) right);
+            } else if (right == NUMBER && left instanceof CharSequence) {
+                return LoxString.concat((CharSequence) left, rightNumber);
+            }
+
+            if (left instanceof CharSequence && right instanceof CharSequence) {
+                return LoxString.concat((CharSequence) left, (CharSequence) right);
+            }
+        }
+        throw error(chunk, ip, "Operands must be two numbers or two strings.");
+    }
+
+    private VMRuntimeError undefined(Chunk chunk, int ip, int slot){
+        return error(chunk, ip, "Undefined Variable '" + globalNames.get(slot) + "'.");
+    }
+
+    //ip already points past the instruction, its last byte carries the same line
+    private static VMRuntimeError error(Chunk chunk, int ip, String msg){
+        return new VMRuntimeError(chunk.line(ip - 1), msg);
+    }
+
+    private static void checkNumberOperands(Chunk chunk, int ip, Object a, Object b){
+        if(a == NUMBER && b == NUMBER) return;
+        throw error(chunk, ip, "Operands must be numbers.");
+    }
+
+    private static String stringify(Object object, double number){
+        if(object == null) return "null";
+
+        if(object == NUMBER) return NumberFormatter.format(number);
+
+        return object.toString();
+    }
+
+    private static boolean isEqual(Object a, double aNumber, Object b, double bNumber){
+        if(a == NUMBER || b == NUMBER){
+            return a == b && Double.doubleToLongBits(aNumber) == Double.doubleToLongBits(bNumber);
+        }
+        if(a == null && b == null) return true;
+        if(a == null) return false;
+        if(a instanceof CharSequence x && b instanceof CharSequence y) return LoxString.contentEquals(x, y);
+        return a.equals(b);
+    }
+
+    private static boolean isTruthy(Object object){
+        if(object == null) return false;
+        if(object instanceof Boolean) return (boolean)object;
+        return true;
+    }
+}
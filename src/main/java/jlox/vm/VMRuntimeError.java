@@ -0,0 +1,10 @@
+package jlox.vm;
+
+public class VMRuntimeError extends RuntimeException {
+    public final int line;
+
+    VMRuntimeError(int line, String message){
+        super(message);
+        this.line = line;
+    }
+}
@@ -0,0 +1,117 @@
+package jlox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ArithmeticTest {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private static final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @DisplayName("Check arithmetic results")
+    @ParameterizedTest
+    @MethodSource("expressions")
+    void checkExpression(String expression, String expected){
+        helper("print " + expression + ";");
+
+        assertEquals(expected + lineSeparator, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("Numbers survive storage in every kind of scope")
+    void testNumbersInScopes(){
+        String script = """
+                var a = 1.5;
+                {
+                    var b = a * 2;
+                    {
+                        var c = b + a;
+                        a = c;
+                    }
+                    print b;
+                }
+                print a;
+                print a == 4.5;
+                """;
+
+        helper(script);
+
+        assertEquals("3" + lineSeparator + "4.5" + lineSeparator + "true" + lineSeparator, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("Logical operators keep the numeric operand")
+    void testLogicalKeepsNumber(){
+        String script = """
+                var a = null or 7;
+                print a + 1;
+                print 3 and 4;
+                print 0 or 5;
+                """;
+
+        helper(script);
+
+        assertEquals("8" + lineSeparator + "4" + lineSeparator + "0" + lineSeparator, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("Throw error when mixing numbers with booleans")
+    void testNumberOperandsError(){
+        helper("print 1 < true;");
+
+        assertEquals("[line 1]: Operands must be numbers." + lineSeparator, errContent.toString());
+    }
+
+    private static Stream<Arguments> expressions(){
+        return Stream.of(
+                Arguments.of("1 + 2 * 3", "7"),
+                Arguments.of("(1 + 2) * 3", "9"),
+                Arguments.of("10 / 4", "2.5"),
+                Arguments.of("-(2 - 5)", "3"),
+                Arguments.of("0.1 + 0.2", "0.30000000000000004"),
+                Arguments.of("2 >= 2", "true"),
+                Arguments.of("1 == 1", "true"),
+                Arguments.of("1 == \"1\"", "false"),
+                Arguments.of("-0 == 0", "false"),
+                Arguments.of("\"n\" + 4", "n4"),
+                Arguments.of("4.25 + \"n\"", "4.25n")
+        );
+    }
+
+    void helper(String script){
+        Scanner scanner = new Scanner(script);
+        List<Token> tokens = scanner.scanTokens();
+        Parser parser = new Parser(tokens);
+        List<Stmt> statements = parser.parse();
+        Interpreter interpreter = new Interpreter();
+        Resolver resolver = new Resolver(interpreter);
+        resolver.resolve(statements);
+        interpreter.interpret(statements);
+    }
+}
@@ -88,6 +88,8 @@ public class AssignmentTest {
         Parser parser = new Parser(tokens);
         List<Stmt> statements = parser.parse();
         Interpreter interpreter = new Interpreter();
+        Resolver resolver = new Resolver(interpreter);
+        resolver.resolve(statements);
         interpreter.interpret(statements);
     }
 }
@@ -0,0 +1,325 @@
+package jlox;
+
+import jlox.vm.VM;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BackendTest {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private static final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @DisplayName("VM output matches the tree-walking interpreter")
+    @ParameterizedTest
+    @MethodSource("programs")
+    void vmMatchesInterpreter(String sourceUnderTest){
+        interpreterHelper(sourceUnderTest);
+        String expectedOut = outContent.toString();
+        String expectedErr = errContent.toString();
+        outContent.reset();
+        errContent.reset();
+
+        vmHelper(sourceUnderTest);
+
+        assertEquals(expectedOut, outContent.toString());
+        assertEquals(expectedErr, errContent.toString());
+    }
+
+    @DisplayName("Closure backend output matches the tree-walking interpreter")
+    @ParameterizedTest
+    @MethodSource("programs")
+    void closuresMatchInterpreter(String sourceUnderTest){
+        interpreterHelper(sourceUnderTest);
+        String expectedOut = outContent.toString();
+        String expectedErr = errContent.toString();
+        outContent.reset();
+        errContent.reset();
+
+        closureHelper(new ClosureCompiler(), sourceUnderTest);
+
+        assertEquals(expectedOut, outContent.toString());
+        assertEquals(expectedErr, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Closure backend keeps globals between runs")
+    void closureGlobalsAcrossRuns(){
+        ClosureCompiler compiler = new ClosureCompiler();
+
+        closureHelper(compiler, "var a = 1;");
+        closureHelper(compiler, "var s = \"n\" + a; a = a + 1;");
+        closureHelper(compiler, "print s + a;");
+
+        assertEquals("n12" + lineSeparator, outContent.toString());
+    }
+
+    @DisplayName("JIT output matches the tree-walking interpreter")
+    @ParameterizedTest
+    @MethodSource("programs")
+    void jitMatchesInterpreter(String sourceUnderTest){
+        interpreterHelper(sourceUnderTest);
+        String expectedOut = outContent.toString();
+        String expectedErr = errContent.toString();
+        outContent.reset();
+        errContent.reset();
+
+        jitHelper(new JitCompiler(new Interpreter()), sourceUnderTest);
+
+        assertEquals(expectedOut, outContent.toString());
+        assertEquals(expectedErr, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("JIT and interpreter share globals")
+    void jitSharesGlobalsWithInterpreter(){
+        Interpreter interpreter = new Interpreter();
+        JitCompiler compiler = new JitCompiler(interpreter);
+
+        jitHelper(compiler, "var a = 1; var s = \"x\";");
+        List<Stmt> statements = parse("print s + a; a = a + 1;");
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+        jitHelper(compiler, "print a * 2;");
+
+        assertEquals("x1" + lineSeparator + "4" + lineSeparator, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("JIT falls back to the interpreter past the JVM method size limit")
+    void jitFallsBackWhenTooLarge(){
+        String script = "var a = 0;" + "a = a + 1;".repeat(10000) + "print a;";
+
+        jitHelper(new JitCompiler(new Interpreter()), script);
+
+        assertEquals("10000" + lineSeparator, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("VM reports programs past its 16 bit operands as compile errors")
+    void vmRejectsOversizedPrograms(){
+        StringBuilder constants = new StringBuilder();
+        StringBuilder globals = new StringBuilder();
+        for(int i = 0; i < 70000; i++){
+            constants.append("var v").append(i).append(" = ").append(i).append(";\n");
+            globals.append("var v").append(i).append(";\n");
+        }
+        String loop = "print 0;\nwhile (false) {" + "print 1;\n".repeat(20000) + "}";
+        String branch = "var x = false;\nif (x) {" + "print 1;\n".repeat(20000) + "}";
+
+        try{
+            assertCompileError(constants + "print v0;", "[line 65537] Error: Too many constants in one chunk.");
+            assertCompileError(globals + "print v0;", "[line 65537] Error: Too many global variables.");
+            assertCompileError(loop, "[line 2] Error: Loop body too large.");
+            assertCompileError(branch, "[line 2] Error: Too much code to jump over.");
+        } finally {
+            Lox.hadError = false;
+        }
+    }
+
+    private void assertCompileError(String script, String error){
+        vmHelper(script);
+        assertEquals("", outContent.toString());
+        assertEquals(error + lineSeparator, errContent.toString());
+        assertTrue(Lox.hadError);
+        errContent.reset();
+    }
+
+    @Test
+    @DisplayName("Adding a string and a non-number is a runtime error on every backend")
+    void stringPlusOtherIsRuntimeError(){
+        String script = "print \"a\";\nprint \"a\" + true;";
+        String expected = "a" + lineSeparator + "[line 2]: Operands must be two numbers or two strings." + lineSeparator;
+        List<Runnable> backends = List.of(
+                () -> interpreterHelper(script),
+                () -> vmHelper(script),
+                () -> closureHelper(new ClosureCompiler(), script),
+                () -> jitHelper(new JitCompiler(new Interpreter()), script));
+        for(Runnable backend: backends){
+            backend.run();
+            assertEquals(expected, outContent.toString() + errContent.toString());
+            outContent.reset();
+            errContent.reset();
+        }
+    }
+
+    private static Stream<Arguments> programs(){
+        return Stream.of(
+                Arguments.of("""
+                        var a = "a";
+                        var b = "b";
+                        var c = "c";
+                        a = b = c;
+                        print a;
+                        print b;
+                        print c;
+                        """),
+                Arguments.of("undef = 123;"),
+                Arguments.of("""
+                        var a = 10;
+                        {
+                            print a;
+                            var a = 20;
+                            print a;
+                        }
+                        print a;
+                        """),
+                Arguments.of("if (true) if (false) print \"bad\"; else print \"good\";"),
+                Arguments.of("if (false) print \"if\"; else print \"else\";"),
+                Arguments.of("""
+                        var a = false;
+                        if (a = true) print a;
+                        """),
+                Arguments.of("""
+                        for (var i = 0; i < 10; i = i + 1){
+                            print i;
+                        }"""),
+                Arguments.of("""
+                        var i = 0;
+                        while (i < 10){
+                            print i;
+                            i = i + 1;
+                        }"""),
+                Arguments.of("""
+                        var i = 0;
+                        for(; i < 10; i = i + 1){
+                            print i;
+                        }"""),
+                Arguments.of("""
+                        var a = 1;
+                        {
+                            var a = a + 1;
+                            var b = a * 2;
+                            {
+                                var c = b - a;
+                                a = c / 4;
+                            }
+                            print a;
+                            print b;
+                        }
+                        print a;
+                        """),
+                Arguments.of("""
+                        print "n = " + 3;
+                        print 2.5 + " items";
+                        print null or "default";
+                        print 1 and 2;
+                        print false and 2;
+                        print !true == false;
+                        print -(3 * 4) >= -12;
+                        print 1 != 2;
+                        print -0 == 0;
+                        print (null or 7) + 1;
+                        """),
+                Arguments.of("""
+                        print 1;
+                        print 1 / 0;
+                        print 2;
+                        """),
+                Arguments.of("""
+                        print "a" - 1;
+                        """),
+                Arguments.of("""
+                        var t = true;
+                        print -t;
+                        """),
+                Arguments.of("""
+                        print a;
+                        var a = 1;
+                        """),
+                Arguments.of("""
+                        var x = 1;
+                        var y = x;
+                        var z = x;
+                        x = "s";
+                        z = z * 2 + y;
+                        print x + z;
+                        var x = 3;
+                        print x - 1;
+                        """),
+                Arguments.of("""
+                        var sum = 0;
+                        var flag = false;
+                        for (var i = 0; i < 5; i = i + 1) {
+                            var even = i / 2 == 2 or i == 0;
+                            if (even) sum = sum + i;
+                            flag = flag or even and i > 3;
+                        }
+                        print sum;
+                        print flag;
+                        print 1 or 2;
+                        print 1 and 2;
+                        print !(sum > 1);
+                        """),
+                Arguments.of("""
+                        var s = "";
+                        for (var i = 0; i < 4; i = i + 1) s = s + i + ",";
+                        var t = s + "end";
+                        var u = s + "other";
+                        print t;
+                        print u;
+                        print s == "0,1,2,3,";
+                        print t + t == u;
+                        """),
+                Arguments.of("print \"a\" + true;"),
+                Arguments.of("""
+                        var n = nil;
+                        print 1 + "a";
+                        print n + "a";
+                        """)
+        );
+    }
+
+    void interpreterHelper(String script){
+        List<Stmt> statements = parse(script);
+        Interpreter interpreter = new Interpreter();
+        Resolver resolver = new Resolver(interpreter);
+        resolver.resolve(statements);
+        interpreter.interpret(statements);
+    }
+
+    void closureHelper(ClosureCompiler compiler, String script){
+        Lox.runClosures(compiler, parse(script));
+    }
+
+    void jitHelper(JitCompiler compiler, String script){
+        Lox.runJit(compiler, parse(script));
+    }
+
+    void vmHelper(String script){
+        Lox.runVm(new VM(), parse(script));
+    }
+
+    private List<Stmt> parse(String script){
+        Scanner scanner = new Scanner(script);
+        List<Token> tokens = scanner.scanTokens();
+        Parser parser = new Parser(tokens);
+        return parser.parse();
+    }
+}
@@ -0,0 +1,116 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+
+@Tag("Interpreter")
+@DisplayName("BudgetTest")
+class BudgetTest {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    @DisplayName("Test that an endless loop runs out of steps")
+    void testSteps(){
+        run("""
+                print "start";
+                while (true) {}
+                """, new Budget(1000, Budget.UNLIMITED, Budget.UNLIMITED));
+        assertEquals("start" + lineSeparator, outContent.toString());
+        assertEquals("[line 2]: Step budget of 1000 exceeded." + lineSeparator, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Test that an endless loop runs out of time")
+    void testTime(){
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> run("""
+                var i = 0;
+                while (true) i = i + 1;
+                """, new Budget(Budget.UNLIMITED, 50, Budget.UNLIMITED)));
+        assertEquals("[line 2]: Time budget of 50 ms exceeded." + lineSeparator, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Test that building a huge string runs out of memory")
+    void testBytes(){
+        run("""
+                var s = "x";
+                while (true) {
+                    s = s + s;
+                }
+                """, new Budget(Budget.UNLIMITED, Budget.UNLIMITED, 1 << 20));
+        assertEquals("[line 3]: Memory budget of 1048576 bytes exceeded." + lineSeparator, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Test that scopes are charged for")
+    void testScopes(){
+        run("""
+                while (true) {
+                    var a = 1;
+                }
+                """, new Budget(Budget.UNLIMITED, Budget.UNLIMITED, 1000));
+        //The scope is charged for as the block is entered, at its '{'
+        assertEquals("[line 1]: Memory budget of 1000 bytes exceeded." + lineSeparator, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Test that errors at a block entry have the block's line")
+    void testBlockLine(){
+        run("""
+                { print "a"; }
+                {
+                    print "b";
+                }
+                """, new Budget(1, Budget.UNLIMITED, Budget.UNLIMITED));
+        assertEquals("a" + lineSeparator, outContent.toString());
+        assertEquals("[line 2]: Step budget of 1 exceeded." + lineSeparator, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Test that every run starts with the full budget")
+    void testPerRun(){
+        Interpreter interpreter = new Interpreter();
+        interpreter.budget(new Budget(250, Budget.UNLIMITED, Budget.UNLIMITED));
+        for(int i = 0; i < 3; i++){
+            run(interpreter, "for (var i = 0; i < 100; i = i + 1) {} print \"done\";");
+        }
+        assertEquals(("done" + lineSeparator).repeat(3), outContent.toString());
+        assertEquals("", errContent.toString());
+    }
+
+    private static void run(String source, Budget budget){
+        Interpreter interpreter = new Interpreter();
+        interpreter.budget(budget);
+        run(interpreter, source);
+    }
+
+    private static void run(Interpreter interpreter, String source){
+        List<Stmt> statements = new Parser(new Scanner(source).scan()).parse();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+    }
+}
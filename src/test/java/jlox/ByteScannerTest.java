@@ -0,0 +1,119 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Tag("Scanner")
+@DisplayName("ByteScannerTest")
+class ByteScannerTest {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @ParameterizedTest
+    @MethodSource("programs")
+    @DisplayName("Check that mapped files scan to the same tokens as strings")
+    void checkSameTokens(String source, long window) throws IOException {
+        List<Token> expected = new Scanner(source).scanTokens();
+        List<Token> actual = scanFile(source, window).toList();
+
+        assertThat(actual).usingRecursiveComparison().isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("Check that a character outside the ASCII range is one error")
+    void checkMultiByteError() throws IOException {
+        scanFile("var a = 1; é", 4);
+
+        String lineSeparator = System.lineSeparator();
+        assertEquals("[line 1] Error: Unexpected character." + lineSeparator, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Check that errors go to the given reporter")
+    void checkReporter() throws IOException {
+        Path file = write("var a = 1;\nvar s = \"open");
+        LoxEngine.ErrorCollector errors = new LoxEngine.ErrorCollector();
+        ByteScanner.scan(file, new SymbolTable(), errors);
+
+        assertEquals(List.of("[line 2] Error: Unterminated String."), errors.messages());
+        assertEquals("", errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Check that mapped files run")
+    void checkRun() throws IOException {
+        Path file = write("var s = \"ü\"; for(var i = 0; i < 3; i = i + 1) s = s + i; print s;");
+        List<Stmt> statements = new Parser(ByteScanner.scan(file, new SymbolTable())).parse();
+
+        Interpreter interpreter = new Interpreter();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+
+        assertEquals("ü012" + System.lineSeparator(), outContent.toString(StandardCharsets.UTF_8));
+    }
+
+    private TokenBuffer scanFile(String source, long window) throws IOException {
+        Path file = write(source);
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            return new ByteScanner(channel, new SymbolTable(), window).scan();
+        }
+    }
+
+    private Path write(String source) throws IOException {
+        return Files.writeString(directory.resolve("script.lox"), source, StandardCharsets.UTF_8);
+    }
+
+    private static Stream<Arguments> programs(){
+        String program = """
+                var first = 12.5; //comment
+                /* multi
+                line */ var second = "two\nlines ü 日本";
+                if (first >= 10 and second != null) print first * 2 / 4 - -1;
+                while (!false) { first = first + 1; }
+                """;
+        return Stream.of(
+                Arguments.of(program, ByteScanner.DEFAULT_WINDOW),
+                Arguments.of(program, 2),
+                Arguments.of(program, 3),
+                Arguments.of(program, 7),
+                Arguments.of("var varx = fo + ore + nul + Print + whilE + t_s + printf;", ByteScanner.DEFAULT_WINDOW),
+                Arguments.of("", 2),
+                Arguments.of("print \"unterminated", 5),
+                Arguments.of("print \"", 3)
+        );
+    }
+}
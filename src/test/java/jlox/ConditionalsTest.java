@@ -87,6 +87,8 @@ public class ConditionalsTest {
         Parser parser = new Parser(tokens);
         List<Stmt> statements = parser.parse();
         Interpreter interpreter = new Interpreter();
+        Resolver resolver = new Resolver(interpreter);
+        resolver.resolve(statements);
         interpreter.interpret(statements);
     }
 }
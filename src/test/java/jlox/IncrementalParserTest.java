@@ -0,0 +1,170 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.BiPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Tag("Parser")
+@DisplayName("IncrementalParserTest")
+class IncrementalParserTest {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    @DisplayName("Test that random edits give the same tree as parsing from scratch")
+    void testRandomEdits(){
+        String[] snippets = {";", "var q = 1;", "\n", "{", "}", "print a;", "/*", "*/", "\"", "x", " + 2",
+                "if (a) ", "else ", "=", "==", "while (false) ", "(", ")", " ", "// note\n", "1.5"};
+        Random random = new Random(42);
+        IncrementalParser parser = new IncrementalParser(program(8));
+
+        for(int i = 0; i < 300; i++){
+            String source = parser.source();
+            int offset = random.nextInt(source.length() + 1);
+            int removed = random.nextInt(Math.min(6, source.length() - offset) + 1);
+            String inserted = random.nextInt(3) == 0 ? "" : snippets[random.nextInt(snippets.length)];
+            parser.edit(offset, removed, inserted);
+
+            assertSameTree(parser, parse(parser.source()));
+        }
+    }
+
+    @Test
+    @DisplayName("Test that statements away from an edit are reused")
+    void testReuse(){
+        IncrementalParser parser = new IncrementalParser(program(200));
+        List<Stmt> before = List.copyOf(parser.statements());
+
+        int offset = parser.source().indexOf("var b100 = ");
+        parser.edit(offset + "var b100 = ".length(), 1, "7");
+
+        List<Stmt> after = parser.statements();
+        assertEquals(before.size(), after.size());
+        assertThat(after.get(0)).isSameAs(before.get(0));
+        assertThat(after.get(after.size() - 1)).isSameAs(before.get(before.size() - 1));
+        assertSameTree(parser, parse(parser.source()));
+    }
+
+    @Test
+    @DisplayName("Test that new lines above reused statements leave them untouched")
+    void testReuseBelowNewLine(){
+        IncrementalParser parser = new IncrementalParser(program(200));
+        Stmt last = parser.statements().get(parser.statements().size() - 1);
+        Token operator = ((Expr.Binary) ((Stmt.While) last).condition).operator;
+        int line = operator.line;
+
+        parser.edit(parser.source().indexOf("var b100"), 0, "\n\n\n");
+
+        List<Stmt> after = parser.statements();
+        assertThat(after.get(after.size() - 1)).isSameAs(last);
+        assertEquals(line, operator.line);
+        assertEquals(3, parser.lineOffset(after.size() - 1));
+        assertEquals(0, parser.lineOffset(0));
+        assertSameTree(parser, parse(parser.source()));
+    }
+
+    @Test
+    @DisplayName("Test that lines below an edit are offset")
+    void testLines(){
+        IncrementalParser parser = new IncrementalParser("var a = 1;\nvar b = a / 0;");
+        parser.edit(0, 0, "\n\n");
+
+        RuntimeError[] failure = new RuntimeError[1];
+        ErrorReporter errors = new ErrorReporter() {
+            @Override
+            public void error(int line, String msg) {
+            }
+
+            @Override
+            public void error(Token token, String msg) {
+            }
+
+            @Override
+            public void runtimeError(RuntimeError error) {
+                failure[0] = error;
+            }
+        };
+        Interpreter interpreter = new Interpreter(OutputSink.stdout(false), errors);
+        new Resolver(interpreter).resolve(parser.statements());
+        int failed = -1;
+        for(int i = 0; i < parser.statements().size() && failed < 0; i++){
+            if(!interpreter.interpret(List.of(parser.statements().get(i)))) failed = i;
+        }
+
+        assertEquals(1, failed);
+        assertEquals(4, failure[0].token.line + parser.lineOffset(failed));
+    }
+
+    @Test
+    @DisplayName("Test that errors are reported for re-parsed statements")
+    void testErrors(){
+        IncrementalParser parser = new IncrementalParser("var a = 1;\nvar b = 2;\nvar c = 3;\nprint a;\nprint a;\nprint a;");
+        parser.edit(parser.source().indexOf("= 3"), 1, "");
+        assertEquals("[line 3] Error at '3': Expect ';' after variable declaration." + lineSeparator, errContent.toString());
+
+        //The statement before an edit is re-parsed with it
+        errContent.reset();
+        parser.edit(parser.source().lastIndexOf("print"), 0, " ");
+        assertEquals("", errContent.toString());
+        parser.edit(parser.source().indexOf("print"), 0, " ");
+        assertEquals("[line 3] Error at '3': Expect ';' after variable declaration." + lineSeparator, errContent.toString());
+    }
+
+    private static String program(int statements){
+        StringBuilder source = new StringBuilder("var a = 1;\n");
+        for(int i = 0; i < statements; i++){
+            source.append("var b").append(i).append(" = a + ").append(i).append(";\n");
+            source.append("if (a < ").append(i).append(") { print a; } else a = a * 2;\n");
+            source.append("while (a > 100) a = a - 1; // comment\n");
+        }
+        return source.toString();
+    }
+
+    private static List<Stmt> parse(String source){
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        try{
+            return new Parser(new Scanner(source).scan()).parse();
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    //Symbol ids depend on the order names were first seen, token lines on when a statement
+    //was parsed. Moved by its offset, everything else must match.
+    private static void assertSameTree(IncrementalParser parser, List<Stmt> expected){
+        List<Stmt> actual = parser.statements();
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < actual.size(); i++){
+            int offset = parser.lineOffset(i);
+            BiPredicate<Token, Token> sameToken = (a, b) -> a.type == b.type && a.lexeme.equals(b.lexeme)
+                    && Objects.equals(a.literal, b.literal) && a.line + offset == b.line;
+            assertThat(actual.get(i)).usingRecursiveComparison()
+                    .withEqualsForType(sameToken, Token.class)
+                    .isEqualTo(expected.get(i));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@Tag("Interpreter")
+@DisplayName("InterpreterStatsTest")
+class InterpreterStatsTest {
+    private static final String PROGRAM = """
+            var a = 1;
+            {
+                var b = a + 1;
+                { var c = b; }
+            }
+            for (var i = 0; i < 3000; i = i + 1) {}
+            print a;
+            """;
+
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    @DisplayName("Test that statements, expressions and scopes are counted")
+    void testCounts(){
+        InterpreterStats stats = new InterpreterStats();
+        run(new MeteredInterpreter(OutputSink.stdout(false), stats));
+
+        assertEquals("1" + lineSeparator, outContent.toString());
+        //6 outside the loop, the loop's block, initializer and while, then 3000 empty bodies
+        assertEquals(9 + 3000, stats.getStatementsExecuted());
+        //6 outside the loop, its initializer, 3001 conditions of 3 and 3000 increments of 4
+        assertEquals(7 + 3001 * 3 + 3000 * 4, stats.getExpressionsEvaluated());
+        assertEquals(3, stats.getEnvironmentsCreated());
+        assertEquals(2, stats.getMaxScopeDepth());
+        assertEquals(0, stats.getScopeDepth());
+        assertEquals(0, stats.getRuntimeErrors());
+    }
+
+    @Test
+    @DisplayName("Test that the counters can be read over JMX")
+    void testRegister() throws JMException {
+        InterpreterStats stats = new InterpreterStats();
+        ObjectName name = stats.register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try{
+            run(new MeteredInterpreter(OutputSink.stdout(false), stats));
+            assertEquals(stats.getStatementsExecuted(), server.getAttribute(name, "StatementsExecuted"));
+            assertEquals(2, server.getAttribute(name, "MaxScopeDepth"));
+        } finally {
+            stats.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    private static void run(Interpreter interpreter){
+        List<Stmt> statements = new Parser(new Scanner(PROGRAM).scan()).parse();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+    }
+}
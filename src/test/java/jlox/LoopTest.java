@@ -75,6 +75,8 @@ public class LoopTest {
         Parser parser = new Parser(tokens);
         List<Stmt> statements = parser.parse();
         Interpreter interpreter = new Interpreter();
+        Resolver resolver = new Resolver(interpreter);
+        resolver.resolve(statements);
         interpreter.interpret(statements);
     }
 }
@@ -0,0 +1,142 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("Interpreter")
+@DisplayName("LoxEngineTest")
+class LoxEngineTest {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    @DisplayName("Test that one program runs on many threads with their own globals")
+    void testThreads() throws Exception {
+        LoxEngine engine = new LoxEngine();
+        LoxEngine.Program program = engine.compile("""
+                var total = 0;
+                for (var i = 0; i < 2000; i = i + 1) {
+                    total = total + i;
+                }
+                var text = "total " + total;
+                print text;
+                """, new LoxEngine.ErrorCollector());
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try{
+            List<Future<String>> results = new ArrayList<>();
+            for(int i = 0; i < 32; i++){
+                results.add(threads.submit(() -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    LoxEngine.Context context = engine.newContext(sink(out), new LoxEngine.ErrorCollector());
+                    assertTrue(context.run(program));
+                    return out.toString();
+                }));
+            }
+            for(Future<String> result: results){
+                assertEquals("total 1999000" + lineSeparator, result.get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertEquals("", outContent.toString());
+        assertEquals("", errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Test that a context keeps its globals between programs")
+    void testGlobals(){
+        LoxEngine engine = new LoxEngine();
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        LoxEngine.Context a = engine.newContext(sink(first), new LoxEngine.ErrorCollector());
+        LoxEngine.Context b = engine.newContext(sink(second), new LoxEngine.ErrorCollector());
+
+        assertTrue(a.run("var x = 1;"));
+        assertTrue(b.run("var x = \"b\";"));
+        LoxEngine.Program print = engine.compile("print x;", new LoxEngine.ErrorCollector());
+        assertTrue(a.run(print));
+        assertTrue(b.run(print));
+        assertEquals("1" + lineSeparator, first.toString());
+        assertEquals("b" + lineSeparator, second.toString());
+    }
+
+    @Test
+    @DisplayName("Test that errors go to the collector instead of stderr")
+    void testErrors(){
+        //Other tests leave Lox's own flags set
+        Lox.hadError = false;
+        Lox.hadRuntimeError = false;
+        LoxEngine engine = new LoxEngine();
+        LoxEngine.ErrorCollector errors = new LoxEngine.ErrorCollector();
+        assertNull(engine.compile("print 1 +;\nvar;", errors));
+        assertEquals(List.of("[line 1] Error at ';': Expect expression.",
+                "[line 2] Error at ';': Expect variable name."), errors.messages());
+        assertTrue(errors.hadError());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LoxEngine.Context context = engine.newContext(sink(out), new LoxEngine.ErrorCollector());
+        assertFalse(context.run("print 1;\nprint y;"));
+        assertEquals("1" + lineSeparator, out.toString());
+        assertEquals(List.of("[line 2]: Undefined Variable 'y'."), context.errors().messages());
+        assertTrue(context.errors().hadRuntimeError());
+        assertFalse(context.errors().hadError());
+
+        assertEquals("", errContent.toString());
+        assertFalse(Lox.hadError);
+        assertFalse(Lox.hadRuntimeError);
+    }
+
+    @Test
+    @DisplayName("Test that a context's runs can be limited")
+    void testLimit(){
+        LoxEngine engine = new LoxEngine();
+        LoxEngine.Context context = engine.newContext(sink(new ByteArrayOutputStream()), new LoxEngine.ErrorCollector());
+        context.limit(10000, Budget.UNLIMITED, Budget.UNLIMITED);
+        assertFalse(context.run("while (true) {}"));
+        assertEquals(List.of("[line 1]: Step budget of 10000 exceeded."), context.errors().messages());
+    }
+
+    @Test
+    @DisplayName("Test that a context refuses another engine's program")
+    void testOtherEngine(){
+        LoxEngine first = new LoxEngine();
+        LoxEngine second = new LoxEngine();
+        first.compile("var a = 1;", new LoxEngine.ErrorCollector());
+        LoxEngine.Program program = first.compile("var b = 2; print b;", new LoxEngine.ErrorCollector());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LoxEngine.Context context = second.newContext(sink(out), new LoxEngine.ErrorCollector());
+        assertThrows(IllegalArgumentException.class, () -> context.run(program));
+        assertEquals("", out.toString());
+    }
+
+    private static OutputSink sink(ByteArrayOutputStream out){
+        return new OutputSink(Channels.newChannel(out), OutputSink.DEFAULT_CAPACITY, false);
+    }
+}
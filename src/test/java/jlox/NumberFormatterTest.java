@@ -0,0 +1,47 @@
+package jlox;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NumberFormatterTest {
+    @DisplayName("Format like Double.toString without the trailing .0")
+    @ParameterizedTest
+    @ValueSource(doubles = {0, -0.0, 1, -1, 3, 1023, 1024, -128, -129, 2.5, 0.1 + 0.2, 1e-3, 1e-4,
+            9999999, -9999999, 1e7, 1.5e7, 123456789, 1e21, 1e300, Double.MAX_VALUE, Double.MIN_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY})
+    void testMatchesStringify(double number){
+        assertEquals(stringify(number), NumberFormatter.format(number));
+
+        StringBuilder builder = new StringBuilder("x");
+        NumberFormatter.appendTo(builder, number);
+        assertEquals("x" + stringify(number), builder.toString());
+    }
+
+    @Test
+    @DisplayName("Format random integers and fractions like stringify")
+    void testRandomValues(){
+        Random random = new Random(42);
+        for(int i = 0; i < 10000; i++){
+            double integral = (double) (random.nextInt(40_000_000) - 20_000_000);
+            double fraction = random.nextDouble() * Math.pow(10, random.nextInt(20) - 10);
+
+            assertEquals(stringify(integral), NumberFormatter.format(integral));
+            assertEquals(stringify(fraction), NumberFormatter.format(fraction));
+        }
+    }
+
+    //The formatting every backend used before NumberFormatter
+    private static String stringify(double number){
+        String text = String.valueOf(number);
+        if(text.endsWith(".0")){
+            text = text.substring(0, text.length() - 2); //remove .0
+        }
+        return text;
+    }
+}
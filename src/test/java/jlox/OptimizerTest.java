@@ -0,0 +1,129 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class OptimizerTest {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private static final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    @DisplayName("Fold constant arithmetic, comparisons and concatenation")
+    void testFolding(){
+        List<Stmt> statements = optimize("""
+                print 60 * (60 * 24);
+                print -(2 - 5) > 2;
+                print "n = " + 2.5;
+                print !null and "x" + "y";
+                """);
+
+        assertThat(printed(statements, 0)).isEqualTo(86400.0);
+        assertThat(printed(statements, 1)).isEqualTo(true);
+        assertThat(printed(statements, 2)).isEqualTo("n = 2.5");
+        assertThat(printed(statements, 3)).isEqualTo("xy");
+    }
+
+    @Test
+    @DisplayName("Strip groupings around non constant expressions")
+    void testGroupingRemoved(){
+        List<Stmt> statements = optimize("var a = 1; print (a) + ((2));");
+
+        Expr.Binary sum = (Expr.Binary) ((Stmt.Print) statements.get(1)).expression;
+        assertThat(sum.left).isInstanceOf(Expr.Variable.class);
+        assertThat(sum.right).isInstanceOf(Expr.Literal.class);
+    }
+
+    @Test
+    @DisplayName("Remove dead branches and loops")
+    void testDeadBranches(){
+        List<Stmt> statements = optimize("""
+                if (false) print 1;
+                if (1 > 2) print 2; else print 3;
+                while (false) print 4;
+                while (null and true) print 5;
+                """);
+
+        assertEquals(1, statements.size());
+        assertThat(printed(statements, 0)).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("Keep runtime errors at their line")
+    void testErrorsNotFolded(){
+        String script = """
+                print 1;
+                print 10 /
+                    (2 - 2);
+                """;
+
+        List<Stmt> statements = optimize(script);
+        Interpreter interpreter = new Interpreter();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+
+        assertEquals("1" + lineSeparator, outContent.toString());
+        assertEquals("[line 2]: Cannot Divide by zero." + lineSeparator, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Leave mismatched operand types for the runtime")
+    void testTypeErrorsNotFolded(){
+        List<Stmt> statements = optimize("print \"a\" - 1;");
+
+        assertThat(((Stmt.Print) statements.get(0)).expression).isInstanceOf(Expr.Binary.class);
+    }
+
+    @Test
+    @DisplayName("Keep statements that have nothing to optimize")
+    void testUnchangedKept(){
+        Scanner scanner = new Scanner("""
+                var i = 0;
+                { print i; }
+                if (i < 1) print i; else { i = 2; }
+                for (var j = 0; j < 2; j = j + 1) { print j; }
+                while (i < 3) i = i + 1;
+                """);
+        List<Stmt> parsed = new Parser(scanner.scanTokens()).parse();
+        List<Stmt> statements = new Optimizer().optimize(parsed);
+
+        assertEquals(parsed.size(), statements.size());
+        for(int i = 0; i < parsed.size(); i++){
+            assertSame(parsed.get(i), statements.get(i));
+        }
+    }
+
+    private Object printed(List<Stmt> statements, int index){
+        Expr expression = ((Stmt.Print) statements.get(index)).expression;
+        assertThat(expression).isInstanceOf(Expr.Literal.class);
+        return ((Expr.Literal) expression).value;
+    }
+
+    List<Stmt> optimize(String script){
+        Scanner scanner = new Scanner(script);
+        List<Token> tokens = scanner.scanTokens();
+        Parser parser = new Parser(tokens);
+        return new Optimizer().optimize(parser.parse());
+    }
+}
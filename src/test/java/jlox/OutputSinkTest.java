@@ -0,0 +1,117 @@
+package jlox;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OutputSinkTest {
+    private static final String lineSeparator = System.lineSeparator();
+
+    //Counts writes so tests can see when the sink flushes
+    private static final class RecordingChannel implements WritableByteChannel {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int writes = 0;
+
+        @Override
+        public int write(ByteBuffer src) {
+            writes++;
+            int count = src.remaining();
+            byte[] chunk = new byte[count];
+            src.get(chunk);
+            bytes.writeBytes(chunk);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        String text(){
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    @DisplayName("Hold output until flushed")
+    void testBuffersUntilFlush(){
+        RecordingChannel channel = new RecordingChannel();
+        OutputSink sink = new OutputSink(channel, OutputSink.DEFAULT_CAPACITY, false);
+
+        sink.println("a");
+        sink.println(2.5);
+        sink.println(true);
+        assertEquals(0, channel.writes);
+
+        sink.flush();
+        assertEquals("a" + lineSeparator + "2.5" + lineSeparator + "true" + lineSeparator, channel.text());
+    }
+
+    @Test
+    @DisplayName("Write out whenever the buffer fills up")
+    void testFlushesWhenFull(){
+        RecordingChannel channel = new RecordingChannel();
+        OutputSink sink = new OutputSink(channel, 64, false);
+        String line = "x".repeat(100);
+
+        sink.println(line);
+        sink.println(line);
+        sink.flush();
+
+        assertEquals(line + lineSeparator + line + lineSeparator, channel.text());
+        assertThat(channel.writes).isGreaterThan(3);
+    }
+
+    @Test
+    @DisplayName("Flush every line in line mode")
+    void testLineMode(){
+        RecordingChannel channel = new RecordingChannel();
+        OutputSink sink = new OutputSink(channel, OutputSink.DEFAULT_CAPACITY, true);
+
+        sink.println("a");
+        sink.println(1);
+
+        assertEquals(2, channel.writes);
+        assertEquals("a" + lineSeparator + "1" + lineSeparator, channel.text());
+    }
+
+    @Test
+    @DisplayName("Encode output as UTF-8")
+    void testUtf8(){
+        RecordingChannel channel = new RecordingChannel();
+        OutputSink sink = new OutputSink(channel, 64, false);
+
+        sink.println("héllo wörld ✓ " + "€".repeat(30));
+        sink.flush();
+
+        assertEquals("héllo wörld ✓ " + "€".repeat(30) + lineSeparator, channel.text());
+    }
+
+    @Test
+    @DisplayName("Interpreter prints to a supplied channel and flushes at the end")
+    void testInterpreterSink(){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(Channels.newChannel(bytes), OutputSink.DEFAULT_CAPACITY, false);
+        Interpreter interpreter = new Interpreter(sink);
+
+        Parser parser = new Parser(new Scanner("var s = \"n\"; s = s + 1; print s; print 3;").scanTokens());
+        List<Stmt> statements = parser.parse();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+
+        assertEquals("n1" + lineSeparator + "3" + lineSeparator, bytes.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,103 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Tag("Parser")
+@DisplayName("ParallelParserTest")
+class ParallelParserTest {
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @AfterAll
+    static void shutDown(){
+        pool.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 7, 50, ParallelParser.DEFAULT_CHUNK})
+    @DisplayName("Test that chunks parse to the same tree as the whole program")
+    void testSameTree(int chunkSize){
+        TokenBuffer tokens = new Scanner(program(100)).scan();
+        List<Stmt> expected = new Parser(tokens).parse();
+        List<Stmt> actual = new ParallelParser(tokens, ErrorReporter.LOX, pool, chunkSize).parse();
+
+        assertThat(actual).usingRecursiveComparison().isEqualTo(expected);
+        assertEquals("", errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Test that chunks only start at top level statement boundaries")
+    void testSplit(){
+        String source = """
+                for (var i = 0; i < 2; i = i + 1) print i;
+                if (true) { print 1; } else print 2;
+                if (true) print 1; else { print 2; }
+                { var a = 1; print a; }
+                print 3;""";
+        TokenBuffer tokens = new Scanner(source).scan();
+        int[] bounds = new ParallelParser(tokens, ErrorReporter.LOX, pool, 1).split();
+
+        //One chunk per line, the last one ends at EOF
+        int[] expected = {0, 20, 33, 46, 56, 59};
+        assertArrayEquals(expected, bounds);
+    }
+
+    @Test
+    @DisplayName("Test that syntax errors are reported in source order")
+    void testErrorOrder(){
+        StringBuilder source = new StringBuilder();
+        for(int i = 0; i < 200; i++){
+            source.append(i % 10 == 0 ? "var = " + i + ";\n" : "print " + i + ";\n");
+        }
+        TokenBuffer tokens = new Scanner(source.toString()).scan();
+
+        new Parser(tokens).parse();
+        String expected = errContent.toString();
+        errContent.reset();
+        for(int i = 0; i < 10; i++){
+            new ParallelParser(tokens, ErrorReporter.LOX, pool, 3).parse();
+            assertEquals(expected, errContent.toString());
+            errContent.reset();
+        }
+        assertThat(expected).startsWith("[line 1] Error at '=': Expect variable name.");
+    }
+
+    private static String program(int statements){
+        StringBuilder source = new StringBuilder("var a = 1;\n");
+        for(int i = 0; i < statements; i++){
+            source.append("var b").append(i).append(" = (a + ").append(i).append(") * -a;\n");
+            source.append("if (a < ").append(i).append(") { print a; } else a = a * 2;\n");
+            source.append("for (var i = 0; i < 3; i = i + 1) { a = a - 1; }\n");
+            source.append("if (a) if (!a) print a; else print \"nested\";\n");
+            source.append("{ var c = a; { print c and a or b").append(i).append("; } }\n");
+        }
+        return source.toString();
+    }
+}
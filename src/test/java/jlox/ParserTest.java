@@ -86,6 +86,51 @@ public class ParserTest {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("expressionErrors")
+    @DisplayName("Test for errors inside expressions")
+    void testExpressionErrors(String script, String expected){
+        helper(script);
+
+        assertEquals(expected + lineSeparator, errContent.toString());
+    }
+
+    private static Stream<Arguments> expressionErrors(){
+        return Stream.of(
+                Arguments.of("a + b = 1;", "[line 1] Error at '=': Invalid assignment target."),
+                Arguments.of("(a) = 1;", "[line 1] Error at '=': Invalid assignment target."),
+                Arguments.of("!a = b = 1;", "[line 1] Error at '=': Invalid assignment target."),
+                Arguments.of("print (1 + 2;", "[line 1] Error at ';': Expect ')' after expression."),
+                Arguments.of("print 1 * / 2;", "[line 1] Error at '/': Expect expression."),
+                Arguments.of("print 1 +", "[line 1] Error at end: Expect expression.")
+        );
+    }
+
+    @Test
+    @DisplayName("Test precedence and associativity")
+    void testPrecedence(){
+        String script = """
+                var a;
+                var b;
+                a = b = 2;
+                print a - 1 - 1;
+                print 2 + 3 * 4 - 8 / 2 / 2;
+                print -a * -a;
+                print !(a == 2) == false;
+                print 1 < 2 == 2 < 3;
+                print null or false and true;
+                print false and false or true;
+                """;
+
+        List<Stmt> statements = new Parser(new Scanner(script).scanTokens()).parse();
+        Interpreter interpreter = new Interpreter();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+
+        String expectedOutput = String.join(lineSeparator, "0", "12", "4", "true", "true", "false", "true") + lineSeparator;
+        assertEquals(expectedOutput, outContent.toString());
+    }
+
     void helper(String script){
         Scanner scanner = new Scanner(script);
         List<Token> tokens = scanner.scanTokens();
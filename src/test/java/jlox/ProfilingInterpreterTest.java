@@ -0,0 +1,83 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Tag("Interpreter")
+@DisplayName("ProfilingInterpreterTest")
+class ProfilingInterpreterTest {
+    private static final String PROGRAM = """
+            var sum = 0;
+            for (var i = 0; i < 10; i = i + 1) {
+                sum = sum + i;
+                if (sum > 20) print sum;
+            }
+            print sum / 0;
+            """;
+
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    @DisplayName("Test that profiling doesn't change what a program does")
+    void testSameBehaviour(){
+        run(new Interpreter());
+        String expectedOut = outContent.toString();
+        String expectedErr = errContent.toString();
+        outContent.reset();
+        errContent.reset();
+
+        run(new ProfilingInterpreter(OutputSink.stdout(false)));
+        assertEquals(expectedOut, outContent.toString());
+        assertEquals(expectedErr, errContent.toString());
+        assertEquals("[line 6]: Cannot Divide by zero." + lineSeparator, expectedErr);
+    }
+
+    @Test
+    @DisplayName("Test that hits are counted per line")
+    void testLines(){
+        ProfilingInterpreter profiler = new ProfilingInterpreter(OutputSink.stdout(false));
+        run(profiler);
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        profiler.printJson(new PrintStream(json));
+        assertThat(json.toString())
+                .contains("{\"line\":1,\"hits\":1,")
+                .contains("{\"line\":2,\"hits\":1,")
+                .contains("{\"line\":3,\"hits\":10,")
+                .contains("{\"line\":4,\"hits\":10,")
+                .contains("{\"line\":6,\"hits\":1,")
+                .doesNotContain("\"line\":0");
+
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        profiler.printTable(new PrintStream(table), PROGRAM.lines().toList());
+        assertThat(table.toString()).contains("sum = sum + i;").startsWith("Profile: ");
+    }
+
+    private static void run(Interpreter interpreter){
+        List<Stmt> statements = new Parser(new Scanner(PROGRAM).scan()).parse();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+    }
+}
@@ -0,0 +1,121 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("Parser")
+@DisplayName("ProgramCacheTest")
+class ProgramCacheTest {
+    private static final String PROGRAM = """
+            var a = 1;
+            var s = "ü\\n" + "x";
+            {
+                var b = -a;
+                if (!(a == b) and a >= 0 or false) print s + a; else print null;
+            }
+            for (var i = 0; i < 3; i = i + 1) a = a * 2.5;
+            while (a > 100) a = a - 1;
+            print a / 2 != true;
+            """;
+
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    @DisplayName("Test that a stored program loads back as the same tree")
+    void testRoundTrip() throws IOException {
+        Path script = write("script.lox", PROGRAM);
+        List<Stmt> statements = compile(PROGRAM);
+
+        ProgramCache cache = new ProgramCache(null);
+        assertNull(cache.entry(script).load());
+        cache.entry(script).store(statements);
+        assertEquals(directory.resolve("script.lox" + ProgramCache.SUFFIX), cache.entry(script).file());
+
+        List<Stmt> loaded = cache.entry(script).load();
+        assertThat(loaded).usingRecursiveComparison().ignoringFieldsMatchingRegexes(".*symbol").isEqualTo(statements);
+
+        run(loaded);
+        assertEquals("ü\\nx1" + System.lineSeparator() + "true" + System.lineSeparator(),
+                outContent.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Test that a changed script misses the cache")
+    void testStale() throws IOException {
+        Path script = write("script.lox", PROGRAM);
+        ProgramCache cache = new ProgramCache(null);
+        cache.entry(script).store(compile(PROGRAM));
+
+        write("script.lox", PROGRAM + "print a;");
+        assertNull(cache.entry(script).load());
+    }
+
+    @Test
+    @DisplayName("Test that damaged cache files miss the cache")
+    void testDamaged() throws IOException {
+        Path script = write("script.lox", PROGRAM);
+        ProgramCache cache = new ProgramCache(null);
+        ProgramCache.Entry entry = cache.entry(script);
+        entry.store(compile(PROGRAM));
+
+        byte[] bytes = Files.readAllBytes(entry.file());
+        Files.write(entry.file(), Arrays.copyOf(bytes, bytes.length - 5));
+        assertNull(entry.load());
+
+        bytes[bytes.length - 20] = (byte) 0xFF;
+        Files.write(entry.file(), bytes);
+        assertDoesNotThrow(entry::load);
+    }
+
+    @Test
+    @DisplayName("Test that a cache directory holds files named by content")
+    void testDirectory() throws IOException {
+        Path first = write("first.lox", PROGRAM);
+        Path second = write("second.lox", PROGRAM);
+        ProgramCache cache = new ProgramCache(directory.resolve("cache"));
+
+        cache.entry(first).store(compile(PROGRAM));
+        assertEquals(cache.entry(first).file(), cache.entry(second).file());
+        assertNotNull(cache.entry(second).load());
+    }
+
+    private Path write(String name, String source) throws IOException {
+        return Files.writeString(directory.resolve(name), source, StandardCharsets.UTF_8);
+    }
+
+    private static List<Stmt> compile(String source){
+        return new Optimizer().optimize(new Parser(new Scanner(source).scan()).parse());
+    }
+
+    private static void run(List<Stmt> statements){
+        Interpreter interpreter = new Interpreter();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+    }
+}
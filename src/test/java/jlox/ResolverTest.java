@@ -0,0 +1,190 @@
+package jlox;
+
+import jlox.vm.VM;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ResolverTest {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private static final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    @DisplayName("Resolve variables across nested scopes")
+    void testNestedScopes(){
+        String script = """
+                var a = "global a";
+                var b = "global b";
+                {
+                    var a = "outer a";
+                    {
+                        var b = "inner b";
+                        print a;
+                        print b;
+                        a = "changed a";
+                    }
+                    print a;
+                    print b;
+                }
+                print a;
+                """;
+
+        helper(new Interpreter(), script);
+
+        String expectedOutput = "outer a" + lineSeparator + "inner b" + lineSeparator
+                + "changed a" + lineSeparator + "global b" + lineSeparator + "global a" + lineSeparator;
+
+        assertEquals(expectedOutput, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("Initializer reads the enclosing variable")
+    void testInitializerReadsOuter(){
+        String script = """
+                var a = 1;
+                {
+                    var a = a + 1;
+                    var a = a + 1;
+                    print a;
+                }
+                print a;
+                """;
+
+        helper(new Interpreter(), script);
+
+        String expectedOutput = "3" + lineSeparator + "1" + lineSeparator;
+
+        assertEquals(expectedOutput, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("Globals persist between runs on the same interpreter")
+    void testGlobalsAcrossRuns(){
+        Interpreter interpreter = new Interpreter();
+
+        helper(interpreter, "var a = 1;");
+        helper(interpreter, "var b = a + 1;");
+        helper(interpreter, "print b;");
+
+        assertEquals("2" + lineSeparator, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("Throw error when reading undefined global")
+    void testUndefinedGlobal(){
+        String script = """
+                print 1;
+                print missing;
+                """;
+
+        helper(new Interpreter(), script);
+
+        assertEquals("1" + lineSeparator, outContent.toString());
+        assertEquals("[line 2]: Undefined Variable 'missing'." + lineSeparator, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Blocks without declarations share the enclosing scope")
+    void testBlocksWithoutDeclarations(){
+        String script = """
+                {
+                    var total = 0;
+                    for (var i = 0; i < 3; i = i + 1) {
+                        {
+                            total = total + i;
+                        }
+                    }
+                    print total;
+                }
+                """;
+
+        Parser parser = new Parser(new Scanner(script).scanTokens());
+        List<Stmt> statements = parser.parse();
+        Interpreter interpreter = new Interpreter();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+
+        Stmt.Block outer = (Stmt.Block) statements.get(0);
+        Stmt.Block loopScope = (Stmt.Block) outer.statements.get(1);
+        Stmt.While loop = (Stmt.While) loopScope.statements.get(1);
+        Stmt.Block body = (Stmt.Block) loop.body;
+        Stmt.Block inner = (Stmt.Block) body.statements.get(0);
+        Expr.Assign assign = (Expr.Assign) ((Stmt.Expression) inner.statements.get(0)).expression;
+
+        assertEquals("3" + lineSeparator, outContent.toString());
+        assertEquals(0, body.slots);
+        assertEquals(0, inner.slots);
+        //Only the loop variable's scope lies between the assignment and 'total'
+        assertEquals(1, assign.depth);
+    }
+
+    @Test
+    @DisplayName("Tell apart locals of hand-built tokens, which carry no symbol")
+    void testTokensWithoutSymbols(){
+        //{ var a = 1; var b = 2; print a; }
+        List<Token> tokens = List.of(
+                new Token(TokenType.LEFT_BRACE, "{", null, 1),
+                new Token(TokenType.VAR, "var", null, 1),
+                new Token(TokenType.IDENTIFIER, "a", null, 1),
+                new Token(TokenType.EQUAL, "=", null, 1),
+                new Token(TokenType.NUMBER, "1", 1.0, 1),
+                new Token(TokenType.SEMICOLON, ";", null, 1),
+                new Token(TokenType.VAR, "var", null, 1),
+                new Token(TokenType.IDENTIFIER, "b", null, 1),
+                new Token(TokenType.EQUAL, "=", null, 1),
+                new Token(TokenType.NUMBER, "2", 2.0, 1),
+                new Token(TokenType.SEMICOLON, ";", null, 1),
+                new Token(TokenType.PRINT, "print", null, 1),
+                new Token(TokenType.IDENTIFIER, "a", null, 1),
+                new Token(TokenType.SEMICOLON, ";", null, 1),
+                new Token(TokenType.RIGHT_BRACE, "}", null, 1),
+                new Token(TokenType.EOF, "", null, 1));
+
+        Interpreter interpreter = new Interpreter();
+        List<Stmt> statements = new Parser(tokens).parse();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+        Lox.runVm(new VM(OutputSink.stdout(false)), new Parser(tokens).parse());
+
+        assertEquals("1" + lineSeparator + "1" + lineSeparator, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("Refuse to declare a local without a symbol")
+    void testDeclareWithoutSymbol(){
+        Stmt.Var var = new Stmt.Var(new Token(TokenType.IDENTIFIER, "a", null, 1), null);
+        Resolver resolver = new Resolver(new Interpreter());
+        assertThrows(IllegalArgumentException.class,
+                () -> resolver.resolve(List.of(new Stmt.Block(new Token(TokenType.LEFT_BRACE, "{", null, 1), List.of(var)))));
+    }
+
+    void helper(Interpreter interpreter, String script){
+        Scanner scanner = new Scanner(script);
+        List<Token> tokens = scanner.scanTokens();
+        Parser parser = new Parser(tokens);
+        List<Stmt> statements = parser.parse();
+        Resolver resolver = new Resolver(interpreter);
+        resolver.resolve(statements);
+        interpreter.interpret(statements);
+    }
+}
@@ -0,0 +1,83 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Tag("Interpreter")
+@DisplayName("SamplingInterpreterTest")
+class SamplingInterpreterTest {
+    private static final String PROGRAM = """
+            var sum = 0;
+            for (var i = 0; i < 200000; i = i + 1) {
+                sum = sum + i;
+                if (sum > 20) sum = sum - 1;
+            }
+            print sum;
+            """;
+
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    @DisplayName("Test that sampling doesn't change what a program does")
+    void testSameBehaviour(){
+        run(new Interpreter());
+        String expected = outContent.toString();
+        outContent.reset();
+
+        SamplingInterpreter sampler = new SamplingInterpreter(OutputSink.stdout(false));
+        sampler.start(1000);
+        run(sampler);
+        sampler.stop();
+        assertEquals(expected, outContent.toString());
+        assertEquals("", errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Test that samples are written as collapsed stacks")
+    void testCollapsed() throws IOException {
+        SamplingInterpreter sampler = new SamplingInterpreter(OutputSink.stdout(false));
+        sampler.start(10000);
+        //Keeps running until the sampler has caught the loop, however slow the machine is
+        for(int i = 0; i < 100 && sampler.samples() == 0; i++){
+            run(sampler);
+        }
+        sampler.stop();
+
+        StringWriter collapsed = new StringWriter();
+        sampler.writeCollapsed(collapsed);
+        List<String> lines = collapsed.toString().lines().toList();
+        assertThat(lines).isNotEmpty().allMatch(line -> line.matches("lox(;[a-z]+:\\d+)+ \\d+"));
+        assertThat(collapsed.toString()).contains(";while:2;");
+        assertEquals(sampler.samples(), lines.stream()
+                .mapToLong(line -> Long.parseLong(line.substring(line.lastIndexOf(' ') + 1))).sum());
+    }
+
+    private static void run(Interpreter interpreter){
+        List<Stmt> statements = new Parser(new Scanner(PROGRAM).scan()).parse();
+        new Resolver(interpreter).resolve(statements);
+        interpreter.interpret(statements);
+    }
+}
@@ -13,6 +13,7 @@ import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static jlox.TokenType.*;
 
 
 @Tag("Scanner")
@@ -78,7 +79,7 @@ class ScannerTest {
         List<Token> testTokens = scannerUnderTest.scanTokens();
         List<Token> expectedTokens = new ArrayList<>();
 
-        expectedTokens.add(new Token(TokenType.IDENTIFIER, sourceUnderTest, null, 1));
+        expectedTokens.add(new Token(TokenType.IDENTIFIER, sourceUnderTest, null, 1, 0));
         expectedTokens.add(new Token(TokenType.EOF, "", null, 1));
 
         assertThat(testTokens).usingRecursiveComparison().isEqualTo(expectedTokens);
@@ -128,6 +129,68 @@ class ScannerTest {
         assertThat(testTokens).usingRecursiveComparison().isEqualTo(expectedTokens);
     }
 
+    @Test
+    @DisplayName("Check that identifiers are interned")
+    void checkInterning(){
+        SymbolTable symbols = new SymbolTable();
+        List<Token> tokens = new Scanner("var a = b; a = a + b; var c;", symbols).scanTokens();
+
+        Token first = tokens.get(1);
+        Token second = tokens.get(5);
+        assertThat(first.lexeme).isEqualTo("a");
+        assertThat(second.lexeme).isSameAs(first.lexeme);
+        assertThat(second.symbol).isEqualTo(first.symbol);
+        assertThat(tokens.get(3).symbol).isNotEqualTo(first.symbol);
+        assertThat(tokens.get(0).symbol).isEqualTo(-1);
+        assertThat(symbols.name(tokens.get(12).symbol)).isEqualTo("c");
+        //Keywords never take a symbol
+        assertEquals(3, symbols.size());
+    }
+
+    @Test
+    @DisplayName("Check that words close to keywords are identifiers")
+    void checkKeywordLookalikes(){
+        List<Token> tokens = new Scanner("var varx fo ore nul Print whilE t_s printf this true").scanTokens();
+
+        assertThat(tokens).extracting(token -> token.type).containsExactly(VAR, IDENTIFIER, IDENTIFIER,
+                IDENTIFIER, IDENTIFIER, IDENTIFIER, IDENTIFIER, IDENTIFIER, IDENTIFIER, THIS, TRUE, EOF);
+    }
+
+    @Test
+    @DisplayName("Check that the symbol table grows")
+    void checkSymbolTableGrowth(){
+        SymbolTable symbols = new SymbolTable();
+        for(int i = 0; i < 1000; i++){
+            assertEquals(i, symbols.intern("v" + i));
+        }
+        for(int i = 0; i < 1000; i++){
+            assertEquals(i, symbols.intern("x v" + i + " y", 2, 3 + Integer.toString(i).length()));
+            assertEquals("v" + i, symbols.name(i));
+        }
+        assertEquals(1000, symbols.size());
+    }
+
+    @Test
+    @DisplayName("Check that the token buffer records offsets and literals")
+    void checkTokenBuffer(){
+        String source = "var name = 12.5;\nprint \"hi\" + name;";
+        TokenBuffer tokens = new Scanner(source).scan();
+
+        assertEquals(11, tokens.size());
+        assertEquals(TokenType.IDENTIFIER, tokens.type(1));
+        assertEquals(4, tokens.start(1));
+        assertEquals(4, tokens.length(1));
+        assertEquals("name", tokens.lexeme(1));
+        assertEquals(12.5, tokens.literal(3));
+        assertEquals(2, tokens.line(6));
+        assertEquals("\"hi\"", tokens.lexeme(6));
+        assertEquals("hi", tokens.literal(6));
+        assertEquals(tokens.symbol(1), tokens.symbol(8));
+        assertEquals(TokenType.EOF, tokens.type(10));
+
+        assertThat(TokenBuffer.of(tokens.toList()).toList()).usingRecursiveComparison().isEqualTo(tokens.toList());
+    }
+
     @Test
     @DisplayName("Check illegal string")
     void checkWrongString(){
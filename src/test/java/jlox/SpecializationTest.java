@@ -0,0 +1,123 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SpecializationTest {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private static final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    @DisplayName("Node specializes on first use and falls back when types change")
+    void testBinaryRewrite(){
+        String script = """
+                var a = 1;
+                var b = 2;
+                var i = 0;
+                while (i < 3) {
+                    print a + b;
+                    if (i == 1) {
+                        a = "x";
+                        b = "y";
+                    }
+                    i = i + 1;
+                }
+                """;
+
+        List<Stmt> statements = helper(script);
+        Stmt.Block body = (Stmt.Block) ((Stmt.While) statements.get(3)).body;
+        Expr.Binary sum = (Expr.Binary) ((Stmt.Print) body.statements.get(0)).expression;
+
+        assertEquals("3" + lineSeparator + "3" + lineSeparator + "xy" + lineSeparator, outContent.toString());
+        assertThat(sum.node).isSameAs(BinaryNode.GENERIC);
+    }
+
+    @Test
+    @DisplayName("Node stays specialized while its types hold")
+    void testBinaryStaysSpecialized(){
+        String script = """
+                var total = 0;
+                for (var i = 0; i < 5; i = i + 1) total = total + i;
+                print total;
+                """;
+
+        List<Stmt> statements = helper(script);
+        Stmt.While loop = (Stmt.While) ((Stmt.Block) statements.get(1)).statements.get(1);
+
+        assertEquals("10" + lineSeparator, outContent.toString());
+        assertThat(((Expr.Binary) loop.condition).node)
+                .isNotSameAs(BinaryNode.UNINITIALIZED)
+                .isNotSameAs(BinaryNode.GENERIC);
+    }
+
+    @Test
+    @DisplayName("Specialized nodes keep runtime errors")
+    void testSpecializedErrors(){
+        String script = """
+                var d = 2;
+                var i = 0;
+                while (i < 2) {
+                    print -(10 / d);
+                    d = d - 2;
+                    i = i + 1;
+                }
+                """;
+
+        helper(script);
+
+        assertEquals("-5" + lineSeparator, outContent.toString());
+        assertEquals("[line 4]: Cannot Divide by zero." + lineSeparator, errContent.toString());
+    }
+
+    @Test
+    @DisplayName("Negation falls back to the generic error")
+    void testUnaryFallback(){
+        String script = """
+                var a = 1;
+                var i = 0;
+                while (i < 2) {
+                    print -a;
+                    a = "s";
+                    i = i + 1;
+                }
+                """;
+
+        helper(script);
+
+        assertEquals("-1" + lineSeparator, outContent.toString());
+        assertEquals("[line 4]: Operand must be a number." + lineSeparator, errContent.toString());
+    }
+
+    List<Stmt> helper(String script){
+        Scanner scanner = new Scanner(script);
+        List<Token> tokens = scanner.scanTokens();
+        Parser parser = new Parser(tokens);
+        List<Stmt> statements = parser.parse();
+        Interpreter interpreter = new Interpreter();
+        Resolver resolver = new Resolver(interpreter);
+        resolver.resolve(statements);
+        interpreter.interpret(statements);
+        return statements;
+    }
+}
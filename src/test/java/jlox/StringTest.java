@@ -0,0 +1,92 @@
+package jlox;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StringTest {
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+    private final PrintStream originalErr = System.err;
+    private static final String lineSeparator = System.lineSeparator();
+
+    @BeforeEach
+    public void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    @DisplayName("Values sharing a builder keep their own contents")
+    void testSharedPrefixes(){
+        String script = """
+                var a = "x";
+                var b = a + "y";
+                var c = b + "z";
+                var d = b + "w";
+                var e = c + c;
+                print b;
+                print c;
+                print d;
+                print e;
+                """;
+
+        helper(script);
+
+        assertEquals("xy" + lineSeparator + "xyz" + lineSeparator + "xyw" + lineSeparator
+                + "xyzxyz" + lineSeparator, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("Built strings compare by content")
+    void testEquality(){
+        String script = """
+                var s = "";
+                for (var i = 0; i < 3; i = i + 1) s = s + i;
+                print s == "012";
+                print "012" == s;
+                print s != "01";
+                print s + "" == s;
+                """;
+
+        helper(script);
+
+        assertEquals("true" + lineSeparator + "true" + lineSeparator + "true" + lineSeparator
+                + "true" + lineSeparator, outContent.toString());
+    }
+
+    @Test
+    @DisplayName("Repeated concatenation appends in place")
+    void testAppendInPlace(){
+        CharSequence s = "";
+        for(int i = 0; i < 100000; i++){
+            s = LoxString.concat(s, "ab");
+        }
+
+        assertThat(s.length()).isEqualTo(200000);
+        assertThat(s.toString()).startsWith("abab").endsWith("abab");
+    }
+
+    void helper(String script){
+        Scanner scanner = new Scanner(script);
+        List<Token> tokens = scanner.scanTokens();
+        Parser parser = new Parser(tokens);
+        List<Stmt> statements = parser.parse();
+        Interpreter interpreter = new Interpreter();
+        Resolver resolver = new Resolver(interpreter);
+        resolver.resolve(statements);
+        interpreter.interpret(statements);
+    }
+}